@@ -0,0 +1,275 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * The LargePercolation class models a percolation system too large for the JVM heap or for int
+ * site indexes, e.g. n = 100000 (10^10 sites). Sites are addressed by long indexes and all the
+ * state lives off-heap in memory-mapped files:
+ * - a bit-packed open map, one bit per site;
+ * - one long per site packing the union-find parent, the rank and the top/bottom flags of
+ *   component roots, so there is no separate rank or status array.
+ * Entries of blocked sites are never read, so the files need no initialisation pass and stay
+ * sparse on disk until sites are opened.
+ *
+ * @author Alessio Vallero
+ */
+public class LargePercolation implements Closeable {
+    // Layout of an entry: bits 0-55 parent, bits 56-61 rank, bit 62 top, bit 63 bottom
+    private static final long PARENT_MASK = (1L << 56) - 1;
+    private static final int RANK_SHIFT = 56;
+    private static final long RANK_UNIT = 1L << RANK_SHIFT;
+    private static final long RANK_MASK = 63L << RANK_SHIFT;
+    private static final long CONNECTED_TO_TOP = 1L << 62;
+    private static final long CONNECTED_TO_BOTTOM = 1L << 63;
+    private static final long CONNECTED_TO_BOTH = CONNECTED_TO_TOP | CONNECTED_TO_BOTTOM;
+
+    private final int gridDiameter;
+    private long openCount;
+    private boolean percolates;
+
+    private final MappedLongArray openStatuses;
+    private final MappedLongArray entries;
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked, backed by temporary files in the
+     * default temporary directory.
+     *
+     * @param n diameter of the n*n grid
+     * @throws IOException if the backing files cannot be created
+     */
+    public LargePercolation(int n) throws IOException {
+        this(n, null);
+    }
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked, backed by temporary files in
+     * directory. The files are deleted by close().
+     *
+     * @param n         diameter of the n*n grid
+     * @param directory Directory of the backing files, null for the default temporary directory
+     * @throws IOException if the backing files cannot be created
+     */
+    public LargePercolation(int n, File directory) throws IOException {
+        if (n <= 0) throw new IllegalArgumentException();
+
+        gridDiameter = n;
+
+        long sites = (long) n * n;
+        openStatuses = MappedLongArray.temporary((sites + 63) >>> 6, directory);
+        try {
+            entries = MappedLongArray.temporary(sites, directory);
+        } catch (IOException e) {
+            openStatuses.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Throw an IllegalArgumentException if any argument to open(), isOpen(), or isFull() is outside
+     * its prescribed range.
+     */
+    private void validateRowCol(int row, int col) {
+        if (row < 1 || col < 1 || row > gridDiameter || col > gridDiameter)
+            throw new IllegalArgumentException();
+    }
+
+    /**
+     * Convert row, col indexes to the long index of the site. Row, col validation must be done by
+     * the caller.
+     *
+     * @param row Row number, greater than 0
+     * @param col Col number, greater than 0
+     * @return Index of row, col in the 1D arrays
+     */
+    private long rowColTo1D(int row, int col) {
+        return (long) (row - 1) * gridDiameter + (col - 1);
+    }
+
+    /**
+     * Check the bit of site in the open map
+     *
+     * @param site Index of the site
+     * @return true if the site is open, false otherwise
+     */
+    private boolean isOpen(long site) {
+        return (openStatuses.get(site >>> 6) & (1L << site)) != 0;
+    }
+
+    /**
+     * Return root for component containing p, halving the path on the way up
+     *
+     * @param p Site for which return the root element
+     * @return Root element of p
+     */
+    private long find(long p) {
+        long entry = entries.get(p);
+        while ((entry & PARENT_MASK) != p) {
+            long parent = entry & PARENT_MASK;
+            long grandparent = entries.get(parent) & PARENT_MASK;
+            entries.set(p, (entry & ~PARENT_MASK) | grandparent);
+
+            p = grandparent;
+            entry = entries.get(p);
+        }
+        return p;
+    }
+
+    /**
+     * Unite the components of site and neighbor by rank, merging their top/bottom flags into the
+     * new root.
+     *
+     * @param site     Index of the site being opened
+     * @param neighbor Index of an adjacent open site
+     */
+    private void connect(long site, long neighbor) {
+        long i = find(site);
+        long j = find(neighbor);
+        if (i == j) return;
+
+        long entryI = entries.get(i);
+        long entryJ = entries.get(j);
+        long flags = (entryI | entryJ) & CONNECTED_TO_BOTH;
+        long rankI = entryI & RANK_MASK;
+        long rankJ = entryJ & RANK_MASK;
+
+        // make lower rank root point to higher one
+        if (rankI < rankJ) {
+            entries.set(i, (entryI & ~PARENT_MASK) | j);
+            entries.set(j, entryJ | flags);
+        }
+        else {
+            entries.set(j, (entryJ & ~PARENT_MASK) | i);
+            entries.set(i, (entryI | flags) + (rankI == rankJ ? RANK_UNIT : 0));
+        }
+    }
+
+    /**
+     * Opens the site (row, col) if it is not open already. Each site is united with adjacent sites,
+     * if they are open.
+     *
+     * @param row Row number, greater than 0
+     * @param col Col number, greater than 0
+     */
+    public void open(int row, int col) {
+        validateRowCol(row, col);
+
+        long index = rowColTo1D(row, col);
+
+        // If previously opened, we do nothing
+        if (isOpen(index)) return;
+
+        openStatuses.set(index >>> 6, openStatuses.get(index >>> 6) | (1L << index));
+        openCount++;
+
+        long entry = index;
+        if (row == 1) entry |= CONNECTED_TO_TOP;
+        if (row == gridDiameter) entry |= CONNECTED_TO_BOTTOM;
+        entries.set(index, entry);
+
+        if (row > 1 && isOpen(index - gridDiameter)) connect(index, index - gridDiameter);
+        if (row < gridDiameter && isOpen(index + gridDiameter)) connect(index, index + gridDiameter);
+        if (col > 1 && isOpen(index - 1)) connect(index, index - 1);
+        if (col < gridDiameter && isOpen(index + 1)) connect(index, index + 1);
+
+        // Only the component of the opened site can have changed
+        if ((entries.get(find(index)) & CONNECTED_TO_BOTH) == CONNECTED_TO_BOTH) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Is site (row, col) currently open?
+     *
+     * @param row Row number, greater than 0
+     * @param col Col number, greater than 0
+     * @return true if site (row, col) is currently open, false otherwise.
+     */
+    public boolean isOpen(int row, int col) {
+        validateRowCol(row, col);
+
+        return isOpen(rowColTo1D(row, col));
+    }
+
+    /**
+     * Is site (row, col) currently full?
+     *
+     * @param row Row number, greater than 0
+     * @param col Col number, greater than 0
+     * @return true if site (row, col) is currently full, false otherwise.
+     */
+    public boolean isFull(int row, int col) {
+        validateRowCol(row, col);
+
+        long index = rowColTo1D(row, col);
+
+        return isOpen(index) && (entries.get(find(index)) & CONNECTED_TO_TOP) != 0;
+    }
+
+    /**
+     * Returns the number of open sites
+     *
+     * @return Current number of open sites
+     */
+    public long numberOfOpenSites() {
+        return openCount;
+    }
+
+    /**
+     * Does the system percolate?
+     *
+     * @return true if the system percolate, false otherwise
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Release the backing files.
+     *
+     * @throws IOException if the files cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            entries.close();
+        } finally {
+            openStatuses.close();
+        }
+    }
+
+    /**
+     * Test client: opens uniformly drawn sites until the grid percolates.
+     *
+     * @param args Proper Usage is: LargePercolation <GRID_SIZE> [SEED] [DIRECTORY]
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 1) {
+            System.out.println("Proper Usage is: LargePercolation <GRID_SIZE> [SEED] [DIRECTORY]");
+        }
+        else {
+            final int n = Integer.parseInt(args[0]);
+            final SplittableRandom random = new SplittableRandom(
+                    args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime());
+            final File directory = args.length > 2 ? new File(args[2]) : null;
+
+            Stopwatch stopwatch = new Stopwatch();
+            try (LargePercolation percolation = new LargePercolation(n, directory)) {
+                do {
+                    percolation.open(random.nextInt(1, n + 1), random.nextInt(1, n + 1));
+                } while (!percolation.percolates());
+
+                System.out.println("elapsed time: " + stopwatch.elapsedTime());
+                System.out.println("threshold: "
+                                           + percolation.numberOfOpenSites() * 1.0 / ((long) n * n));
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -1,43 +1,88 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
 /**
- * The Percolation class models of a percolation system.
+ * The Percolation class models of a percolation system. Memory is one status byte per site plus
+ * the union-find. Grids that are reset() also keep a log of the sites opened since the last
+ * reset, so that a reset only clears those: up to 4 bytes more per site, allocated by the first
+ * reset() and grown with the open count.
  *
  * @author Alessio Vallero
  */
 public class Percolation {
-    private final int virtualTop;
-    private final int virtualBottom;
+    // Bit flags stored in siteStatuses. OPEN is meaningful for every site, TOP and BOTTOM only
+    // for the root of each component.
+    private static final byte OPEN = 1;
+    private static final byte CONNECTED_TO_TOP = 2;
+    private static final byte CONNECTED_TO_BOTTOM = 4;
+    private static final byte CONNECTED_TO_BOTH = CONNECTED_TO_TOP | CONNECTED_TO_BOTTOM;
 
     private final int gridDiameter;
     private int openCount;
-    private boolean[] openStatuses;
+    private boolean percolates;
+    private final byte[] siteStatuses;
+    // Sites opened since the last reset(), in order; null until the first reset()
+    private int[] openedSites;
 
-    private final WeightedQuickUnionUF weightedQuickUnionUFIsFull;
-    private final WeightedQuickUnionUF weightedQuickUnionUFPercolation;
+    private final UnionFind unionFind;
 
     /**
-     * Creates n-by-n grid, with all sites initially blocked and two WeightedQuickUnionUF to avoid
-     * backwash problems due to the connection of virtual top to the virtual bottom
+     * Creates n-by-n grid, with all sites initially blocked. A single union-find is used: instead
+     * of virtual top and bottom sites, each component root carries "connected to top" and
+     * "connected to bottom" flags, so there is no backwash and no need for a second union-find.
      *
      * @param n diameter of the n*n grid
      */
     public Percolation(int n) {
+        this(n, UnionFindStrategy.PATH_HALVING);
+    }
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked, using the given union-find
+     * implementation.
+     *
+     * @param n        diameter of the n*n grid
+     * @param strategy Union-find implementation
+     */
+    public Percolation(int n, UnionFindStrategy strategy) {
         validatePercInput(n);
+        if (strategy == null) throw new IllegalArgumentException();
 
         gridDiameter = n;
 
-        virtualTop = 0;
-        virtualBottom = n * n + 1;
+        // Java zero-initialises arrays, so every site starts blocked
+        siteStatuses = new byte[n * n];
 
-        weightedQuickUnionUFIsFull = new WeightedQuickUnionUF(n * n + 1);
-        weightedQuickUnionUFPercolation = new WeightedQuickUnionUF(n * n + 2);
+        unionFind = strategy.create(n * n);
+    }
 
-        // Init "open" statutes array
-        openStatuses = new boolean[n * n + 2];
-        for (int i = 1; i < n * n + 2; i++) {
-            openStatuses[i] = false;
+    /**
+     * Block every site again, so the same instance can serve another trial without allocating.
+     * Blocked sites are never touched by open(), so only the sites opened since the last reset are
+     * cleared: O(numberOfOpenSites()). The first reset has no log to go by yet and scans the n^2
+     * site statuses once.
+     */
+    public void reset() {
+        if (openedSites == null) {
+            for (int site = 0; site < siteStatuses.length && openCount > 0; site++) {
+                if (siteStatuses[site] != 0) {
+                    siteStatuses[site] = 0;
+                    unionFind.isolate(site);
+                    openCount--;
+                }
+            }
+            openedSites = new int[Math.min(siteStatuses.length, 1024)];
+        }
+        else {
+            for (int i = 0; i < openCount; i++) {
+                int site = openedSites[i];
+                siteStatuses[site] = 0;
+                unionFind.isolate(site);
+            }
         }
+
+        openCount = 0;
+        percolates = false;
     }
 
     /**
@@ -68,13 +113,39 @@ public class Percolation {
      * @return Index of row, col in the 1D array
      */
     private int rowColTo1D(int row, int col) {
-        return (row - 1) * gridDiameter + (col - 1) + 1;
+        return (row - 1) * gridDiameter + (col - 1);
+    }
+
+    /**
+     * Return root for component containing p
+     *
+     * @param p Site for which return the root element
+     * @return Root element of p
+     */
+    private int find(int p) {
+        return unionFind.find(p);
+    }
+
+    /**
+     * Unite the components of site and neighbor, merging their top/bottom flags into the new root.
+     *
+     * @param site     Index of the site being opened
+     * @param neighbor Index of an adjacent open site
+     */
+    private void connect(int site, int neighbor) {
+        int i = find(site);
+        int j = find(neighbor);
+        if (i == j) return;
+
+        byte mergedFlags = (byte) (siteStatuses[i] | siteStatuses[j]);
+
+        siteStatuses[unionFind.union(i, j)] = mergedFlags;
     }
 
     /**
      * Opens the site (row, col) if it is not open already. Each site is united with adjacent sites,
-     * if they are open. First row sites are connected to virtual top and last row sites to virtual
-     * bottom, to avoid n^2 search in the percolates function.
+     * if they are open. First row sites are flagged as connected to top and last row sites as
+     * connected to bottom, to avoid n^2 search in the percolates function.
      *
      * @param row Row number, greater than 0
      * @param col Col number, greater than 0
@@ -85,57 +156,163 @@ public class Percolation {
         int index = rowColTo1D(row, col);
 
         // If previously opened, we do nothing
-        if (!openStatuses[index]) {
-            openStatuses[index] = true;
-            openCount++;
-
-            // First row site connected to virtual top
-            if (row == 1) {
-                weightedQuickUnionUFIsFull.union(index, virtualTop);
-                weightedQuickUnionUFPercolation.union(index, virtualTop);
-            }
+        if (siteStatuses[index] == 0) {
+            openSite(index, row, col);
+        }
+    }
 
-            // Last row site connected to virtual bottom
-            if (row == gridDiameter) {
-                weightedQuickUnionUFPercolation.union(index, virtualBottom);
-            }
+    /**
+     * Open a blocked site and unite it with its open neighbors. Validation, and the check that
+     * the site is blocked, must be done by the caller.
+     *
+     * @param index Index of the site in the 1D arrays
+     * @param row   Row number of the site, greater than 0
+     * @param col   Col number of the site, greater than 0
+     */
+    private void openSite(int index, int row, int col) {
+        byte status = OPEN;
+        // First row site connected to top, last row site connected to bottom
+        if (row == 1) status |= CONNECTED_TO_TOP;
+        if (row == gridDiameter) status |= CONNECTED_TO_BOTTOM;
 
-            // Unite to adjacent top element, if open
-            if (row > 1) {
-                int nUp = rowColTo1D(row - 1, col);
-                if (openStatuses[nUp]) {
-                    weightedQuickUnionUFIsFull.union(index, nUp);
-                    weightedQuickUnionUFPercolation.union(index, nUp);
-                }
+        siteStatuses[index] = status;
+        if (openedSites != null) {
+            if (openCount == openedSites.length) {
+                openedSites = Arrays.copyOf(openedSites,
+                                            (int) Math.min(siteStatuses.length, 2L * openCount));
             }
+            openedSites[openCount] = index;
+        }
+        openCount++;
 
-            // Unite to adjacent bottom element, if open
-            if (row < gridDiameter) {
-                int nDown = rowColTo1D(row + 1, col);
-                if (openStatuses[nDown]) {
-                    weightedQuickUnionUFIsFull.union(index, nDown);
-                    weightedQuickUnionUFPercolation.union(index, nDown);
-                }
-            }
+        // Unite to adjacent top element, if open
+        if (row > 1 && siteStatuses[index - gridDiameter] != 0) {
+            connect(index, index - gridDiameter);
+        }
 
-            // Unite to adjacent left element, if open
-            if (col > 1) {
-                int nLeft = rowColTo1D(row, col - 1);
-                if (openStatuses[nLeft]) {
-                    weightedQuickUnionUFIsFull.union(index, nLeft);
-                    weightedQuickUnionUFPercolation.union(index, nLeft);
-                }
+        // Unite to adjacent bottom element, if open
+        if (row < gridDiameter && siteStatuses[index + gridDiameter] != 0) {
+            connect(index, index + gridDiameter);
+        }
+
+        // Unite to adjacent left element, if open
+        if (col > 1 && siteStatuses[index - 1] != 0) {
+            connect(index, index - 1);
+        }
+
+        // Unite to adjacent right element, if open
+        if (col < gridDiameter && siteStatuses[index + 1] != 0) {
+            connect(index, index + 1);
+        }
+
+        // Only the component of the opened site can have changed
+        if ((siteStatuses[find(index)] & CONNECTED_TO_BOTH) == CONNECTED_TO_BOTH) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Open a batch of sites given by flat indexes (row - 1) * n + (col - 1), e.g. a recorded
+     * trace. The whole range is validated once up front, then the sites are opened in order
+     * without per-site argument checks.
+     *
+     * @param sites  Flat site indexes
+     * @param from   First element of sites to open
+     * @param length Number of elements of sites to open
+     * @return Offset from from of the site whose opening made the system percolate, or -1 if the
+     * system did not start percolating during this batch, including when it already percolated
+     * before the batch
+     */
+    public int openAll(int[] sites, int from, int length) {
+        if (sites == null || from < 0 || length < 0 || from > sites.length - length)
+            throw new IllegalArgumentException();
+
+        validateSites(sites, from, length);
+
+        return openValidated(sites, from, length, !percolates);
+    }
+
+    /**
+     * Open the remaining sites of a buffer of flat indexes (row - 1) * n + (col - 1), see
+     * openAll(int[], int, int). As there, the whole buffer is validated before any site is
+     * opened. The buffer position is moved to its limit.
+     *
+     * @param sites Buffer of flat site indexes
+     * @return Offset from the initial buffer position of the site whose opening made the system
+     * percolate, or -1 if the system did not start percolating during this batch, including when
+     * it already percolated before the batch
+     */
+    public int openAll(IntBuffer sites) {
+        if (sites == null) throw new IllegalArgumentException();
+
+        if (sites.hasArray()) {
+            int from = sites.arrayOffset() + sites.position();
+            int percolatedAt = openAll(sites.array(), from, sites.remaining());
+            sites.position(sites.limit());
+            return percolatedAt;
+        }
+
+        // Direct or mapped buffer: copy through a small scratch array, once to validate, once to open
+        int[] chunk = new int[Math.min(sites.remaining(), 8192)];
+        IntBuffer validation = sites.duplicate();
+        while (validation.hasRemaining()) {
+            int length = Math.min(chunk.length, validation.remaining());
+            validation.get(chunk, 0, length);
+            validateSites(chunk, 0, length);
+        }
+
+        boolean tracking = !percolates;
+        int percolatedAt = -1, offset = 0;
+        while (sites.hasRemaining()) {
+            int length = Math.min(chunk.length, sites.remaining());
+            sites.get(chunk, 0, length);
+
+            int chunkPercolatedAt = openValidated(chunk, 0, length, tracking);
+            if (chunkPercolatedAt >= 0) {
+                percolatedAt = offset + chunkPercolatedAt;
+                tracking = false;
             }
+            offset += length;
+        }
 
-            // Unite to adjacent right element, if open
-            if (col < gridDiameter) {
-                int nRight = rowColTo1D(row, col + 1);
-                if (openStatuses[nRight]) {
-                    weightedQuickUnionUFIsFull.union(index, nRight);
-                    weightedQuickUnionUFPercolation.union(index, nRight);
-                }
+        return percolatedAt;
+    }
+
+    /**
+     * Throw an IllegalArgumentException if any of length flat indexes of sites from from is not a
+     * site of the grid.
+     */
+    private void validateSites(int[] sites, int from, int length) {
+        int max = siteStatuses.length - 1;
+        for (int i = from; i < from + length; i++) {
+            if (sites[i] < 0 || sites[i] > max) throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Open length validated flat indexes of sites from from.
+     *
+     * @param tracking false to skip looking for the site that made the system percolate
+     * @return Offset from from of the site whose opening made the system percolate, -1 if none
+     * did or tracking is false
+     */
+    private int openValidated(int[] sites, int from, int length, boolean tracking) {
+        // Once percolating, the system percolates forever: no need to track it any further
+        int percolatedAt = -1;
+        for (int i = from; i < from + length; i++) {
+            int index = sites[i];
+            if (siteStatuses[index] != 0) continue;
+
+            int rowFrom0 = index / gridDiameter;
+            openSite(index, rowFrom0 + 1, index - rowFrom0 * gridDiameter + 1);
+
+            if (tracking && percolates) {
+                percolatedAt = i - from;
+                tracking = false;
             }
         }
+
+        return percolatedAt;
     }
 
     /**
@@ -150,25 +327,111 @@ public class Percolation {
 
         int index = rowColTo1D(row, col);
 
-        return openStatuses[index];
+        return siteStatuses[index] != 0;
     }
 
     /**
-     * Is site (row, col) currently full? Check with IsFull WeightedQuickUnionUF object if site is
-     * connected to the virtual top
+     * Is site (row, col) currently full? Check if the root of the site's component is flagged as
+     * connected to top.
      *
      * @param row Row number, greater than 0
      * @param col Col number, greater than 0
-     * @return true if site (row, col) is currently open, false otherwise.
+     * @return true if site (row, col) is currently full, false otherwise.
      */
     public boolean isFull(int row, int col) {
         validateRowCol(row, col);
 
         int index = rowColTo1D(row, col);
 
-        return openStatuses[index]
-                && weightedQuickUnionUFIsFull.find(index) == weightedQuickUnionUFIsFull
-                .find(virtualTop);
+        return siteStatuses[index] != 0
+                && (siteStatuses[find(index)] & CONNECTED_TO_TOP) != 0;
+    }
+
+    /**
+     * Label every site with the root of its cluster, -1 for blocked sites, in one row-major pass.
+     * Adjacent open sites are always in the same cluster, so an open site with an open left or
+     * top neighbor copies that neighbor's label and only the others need a find().
+     *
+     * @param labels Array of n^2 labels to fill
+     */
+    private void labelClusters(int[] labels) {
+        for (int site = 0, col = 0; site < siteStatuses.length; site++) {
+            if (siteStatuses[site] == 0) labels[site] = -1;
+            else if (col > 0 && siteStatuses[site - 1] != 0) labels[site] = labels[site - 1];
+            else if (site >= gridDiameter && siteStatuses[site - gridDiameter] != 0)
+                labels[site] = labels[site - gridDiameter];
+            else labels[site] = find(site);
+
+            if (++col == gridDiameter) col = 0;
+        }
+    }
+
+    /**
+     * Bitmap of all full sites, computed in one pass instead of n^2 isFull() calls: bit
+     * (index % 64) of element (index / 64) is set if the site at index (row - 1) * n + (col - 1)
+     * is full.
+     *
+     * @return Bitmap of (n^2 + 63) / 64 words
+     */
+    public long[] fullSites() {
+        int[] labels = new int[siteStatuses.length];
+        labelClusters(labels);
+
+        long[] words = new long[(siteStatuses.length + 63) >>> 6];
+        for (int site = 0; site < siteStatuses.length; site++) {
+            if (labels[site] >= 0 && (siteStatuses[labels[site]] & CONNECTED_TO_TOP) != 0) {
+                words[site >>> 6] |= 1L << site;
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Cluster label of every site, computed in one pass: element (row - 1) * n + (col - 1) is the
+     * index of the root of the site's cluster, so two open sites are connected if and only if
+     * their labels are equal. Blocked sites get -1.
+     *
+     * @return Array of n^2 labels
+     */
+    public int[] clusterLabels() {
+        int[] labels = new int[siteStatuses.length];
+        labelClusters(labels);
+
+        return labels;
+    }
+
+    /**
+     * Histogram of cluster sizes: element s is the number of clusters of exactly s open sites.
+     * Each root's label is replaced by minus the size of its cluster.
+     *
+     * @return Array whose length is the largest cluster size plus one
+     */
+    public int[] clusterSizeHistogram() {
+        int[] labels = new int[siteStatuses.length];
+        labelClusters(labels);
+
+        for (int site = 0; site < siteStatuses.length; site++) {
+            if (siteStatuses[site] == 0) continue;
+
+            int root = labels[site];
+            if (root < 0) labels[site]--;              // a root, already counted by its cluster
+            else if (labels[root] >= 0) labels[root] = -1;
+            else labels[root]--;
+        }
+
+        int largest = 0;
+        for (int site = 0; site < siteStatuses.length; site++) {
+            if (siteStatuses[site] != 0 && labels[site] < 0) largest = Math.max(largest, -labels[site]);
+        }
+
+        int[] histogram = new int[largest + 1];
+        for (int site = 0; site < siteStatuses.length; site++) {
+            // Only roots have a size
+            if (siteStatuses[site] != 0 && labels[site] < 0) histogram[-labels[site]]++;
+        }
+
+        return histogram;
     }
 
     /**
@@ -180,16 +443,13 @@ public class Percolation {
         return openCount;
     }
 
-    // does the system percolate?
-
     /**
-     * Does the system percolate? Check with Percolation WeightedQuickUnionUF object if virtual top
-     * and virtual bottom are connected.
+     * Does the system percolate? Since the grid only ever gains open sites, the flag is latched by
+     * open() as soon as a component is connected to both top and bottom.
      *
      * @return true if the system percolate, false otherwise
      */
     public boolean percolates() {
-        return weightedQuickUnionUFPercolation.find(virtualTop) == weightedQuickUnionUFPercolation
-                .find(virtualBottom);
+        return percolates;
     }
 }
@@ -2,6 +2,22 @@ import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.StdStats;
 import edu.princeton.cs.algs4.Stopwatch;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 /**
  * The Percolation class models of a percolation system.
  *
@@ -9,6 +25,29 @@ import edu.princeton.cs.algs4.Stopwatch;
  */
 public class PercolationStats {
     private static final double CONFIDENCE_95 = 1.96;
+    // Below this many trials the normal approximation behind CONFIDENCE_95 is not trusted
+    private static final int MIN_ADAPTIVE_TRIALS = 30;
+
+    /**
+     * How sites are chosen during a trial.
+     */
+    public enum TrialMode {
+        /**
+         * Draw uniform row/col pairs until the grid percolates. Draws that land on an already
+         * open site are wasted.
+         */
+        RANDOM_SITES,
+        /**
+         * Newman–Ziff: open sites in the order of one random permutation, so every draw opens a
+         * new site and the exact open count at which the grid percolates is recorded.
+         */
+        PERMUTATION
+    }
+
+    private final int gridSites;
+    private final int trialsUsed;
+    // Sorted open counts at which each trial first percolated, only kept in PERMUTATION mode
+    private final int[] percolationOpenCounts;
 
     private final double percolationThresholdsMean, percolationThresholdsStdDev,
             percolationThresholdsConfidenceLow, percolationThresholdsConfidenceHigh;
@@ -20,25 +59,111 @@ public class PercolationStats {
      * @param trials Number of attemps
      */
     public PercolationStats(int n, int trials) {
-        validateStatsInput(n, trials);
+        this(n, trials, TrialMode.RANDOM_SITES);
+    }
 
-        double[] percolationThresholds = new double[trials];
+    /**
+     * Perform independent trials on an n-by-n grid, choosing the sites to open according to mode.
+     * In PERMUTATION mode each trial opens at most n^2 sites and the percolation probability
+     * curve is available afterwards. The master seed is drawn from StdRandom, so StdRandom.setSeed
+     * still makes a run reproducible.
+     *
+     * @param n      Size of grid
+     * @param trials Number of attemps
+     * @param mode   How sites are chosen during a trial
+     */
+    public PercolationStats(int n, int trials, TrialMode mode) {
+        this(n, trials, mode, StdRandom.uniform(Long.MAX_VALUE), null);
+    }
 
-        // For each trial, we create a new percolation object. We open sites until it percolates
-        for (int i = 0; i < trials; i++) {
-            Percolation percolation = new Percolation(n);
+    /**
+     * Perform independent trials on an n-by-n grid, spreading them across executor. Each trial
+     * draws from its own SplittableRandom stream split off the master seed in trial order, and
+     * the statistics are computed over the results in trial order, so mean, stddev and the
+     * confidence bounds are bit-identical for the same seed whatever the number of threads.
+     *
+     * @param n        Size of grid
+     * @param trials   Number of attemps
+     * @param mode     How sites are chosen during a trial
+     * @param seed     Master seed of the per-trial random streams
+     * @param executor Executor running the trials, e.g. ForkJoinPool.commonPool(). If null, the
+     *                 trials run sequentially on the calling thread
+     */
+    public PercolationStats(int n, int trials, TrialMode mode, long seed,
+                            ExecutorService executor) {
+        this(n, runFixedTrials(n, trials, mode, seed, executor, null), mode);
+    }
 
-            do {
-                int randomRow = StdRandom.uniform(1, n + 1);
-                int randomCol = StdRandom.uniform(1, n + 1);
+    /**
+     * Same as PercolationStats(n, trials, mode, seed, executor), recording every completed trial
+     * in a memory-mapped checkpoint file. If the file already holds a checkpoint of the same run
+     * (same n, trials, mode and seed), e.g. because the JVM died, only the missing trials are run.
+     * Since trial i always draws from the same stream, a trial interrupted halfway is simply run
+     * again and gives the same result, so neither the random state nor the grid of the trial in
+     * progress need saving. Recording a trial is a single int store in the mapping, which the
+     * operating system writes back even if the JVM dies.
+     *
+     * @param n          Size of grid
+     * @param trials     Number of attemps
+     * @param mode       How sites are chosen during a trial
+     * @param seed       Master seed of the per-trial random streams
+     * @param executor   Executor running the trials. If null, the trials run sequentially on the
+     *                   calling thread
+     * @param checkpoint Checkpoint file, created if it does not exist
+     * @throws IOException if the checkpoint file cannot be created or mapped
+     */
+    public PercolationStats(int n, int trials, TrialMode mode, long seed,
+                            ExecutorService executor, File checkpoint) throws IOException {
+        this(n, runFixedTrials(n, trials, mode, seed, executor,
+                               TrialCheckpoint.open(checkpoint, n, trials, mode, seed)), mode);
+    }
 
-                percolation.open(randomRow, randomCol);
+    /**
+     * Perform trials on an n-by-n grid until the 95% confidence interval is narrow enough, or
+     * maxTrials have been run. Mean and variance are kept online with Welford's algorithm and
+     * checked after every trial, in trial order, so the number of trials used is the same for a
+     * seed whatever the number of threads; see trials().
+     *
+     * @param n               Size of grid
+     * @param targetHalfWidth Wanted half-width of the 95% confidence interval
+     * @param relative        If true, targetHalfWidth is a fraction of the mean rather than an
+     *                        absolute width
+     * @param maxTrials       Maximum number of trials to run
+     * @param mode            How sites are chosen during a trial
+     * @param seed            Master seed of the per-trial random streams
+     * @param executor        Executor running batches of trials. If null, the trials run
+     *                        sequentially on the calling thread
+     */
+    public PercolationStats(int n, double targetHalfWidth, boolean relative, int maxTrials,
+                            TrialMode mode, long seed, ExecutorService executor) {
+        this(n, runAdaptiveTrials(n, targetHalfWidth, relative, maxTrials, mode, seed, executor),
+             mode);
+    }
 
-            } while (!percolation.percolates());
+    /**
+     * Compute the statistics of the completed trials.
+     *
+     * @param n          Size of grid
+     * @param openCounts Open count at which each trial percolated, in trial order
+     * @param mode       How sites were chosen during the trials
+     */
+    private PercolationStats(int n, int[] openCounts, TrialMode mode) {
+        int trials = openCounts.length;
+        gridSites = n * n;
+
+        double[] percolationThresholds = new double[trials];
+        for (int i = 0; i < trials; i++) {
+            percolationThresholds[i] = openCounts[i] * 1.0 / gridSites;
+        }
 
-            // Compute threshold for this percolation
-            percolationThresholds[i] = percolation.numberOfOpenSites() * 1.0 / (n * n);
+        if (mode == TrialMode.PERMUTATION) {
+            Arrays.sort(openCounts);
+            percolationOpenCounts = openCounts;
+        }
+        else {
+            percolationOpenCounts = null;
         }
+        trialsUsed = trials;
 
         // Mean
         percolationThresholdsMean = StdStats.mean(percolationThresholds);
@@ -58,10 +183,452 @@ public class PercolationStats {
      * @param n      Size of the grid
      * @param trials Number of trials
      */
-    private void validateStatsInput(int n, int trials) {
+    private static void validateStatsInput(int n, int trials) {
         if (n <= 0 || trials <= 0) throw new IllegalArgumentException();
     }
 
+    /**
+     * Run exactly trials trials, skipping the ones already completed in checkpoint.
+     *
+     * @return Open count at which each trial percolated, in trial order
+     */
+    private static int[] runFixedTrials(int n, int trials, TrialMode mode, long seed,
+                                        ExecutorService executor, TrialCheckpoint checkpoint) {
+        validateStatsInput(n, trials);
+        if (mode == null) throw new IllegalArgumentException();
+
+        // Streams are split sequentially, so trial i always gets the same one
+        SplittableRandom masterRandom = new SplittableRandom(seed);
+        SplittableRandom[] trialRandoms = new SplittableRandom[trials];
+        for (int i = 0; i < trials; i++) {
+            trialRandoms[i] = masterRandom.split();
+        }
+
+        int[] openCounts = checkpoint == null ? new int[trials] : checkpoint.completedOpenCounts();
+        if (executor == null) {
+            new TrialRunner(n, mode, checkpoint).run(trialRandoms, openCounts, 0, trials);
+        }
+        else {
+            runTrialsInParallel(n, mode, trialRandoms, openCounts, 0, trials, executor,
+                                checkpoint, new ConcurrentLinkedQueue<>());
+        }
+
+        if (checkpoint != null) checkpoint.force();
+
+        return openCounts;
+    }
+
+    /**
+     * Run trials until the 95% confidence interval half-width reaches the target. In parallel,
+     * trials run in batches of a few per core; trials of the last batch past the stopping point
+     * are discarded so the outcome does not depend on the batch size.
+     *
+     * @return Open count at which each used trial percolated, in trial order
+     */
+    private static int[] runAdaptiveTrials(int n, double targetHalfWidth, boolean relative,
+                                           int maxTrials, TrialMode mode, long seed,
+                                           ExecutorService executor) {
+        validateStatsInput(n, maxTrials);
+        if (mode == null || !(targetHalfWidth > 0.0)) throw new IllegalArgumentException();
+
+        final double gridSites = (double) n * n;
+        final int batch = executor == null ? 1 : Runtime.getRuntime().availableProcessors() * 4;
+
+        SplittableRandom masterRandom = new SplittableRandom(seed);
+        SplittableRandom[] trialRandoms = new SplittableRandom[maxTrials];
+        int[] openCounts = new int[maxTrials];
+        TrialRunner sequentialRunner = executor == null ? new TrialRunner(n, mode, null) : null;
+        // Runners of the workers, kept across batches
+        ConcurrentLinkedQueue<TrialRunner> runners = new ConcurrentLinkedQueue<>();
+
+        // Welford's running mean and sum of squared deviations
+        double mean = 0.0, squaredDeviations = 0.0;
+
+        int completed = 0;
+        while (completed < maxTrials) {
+            int to = Math.min(maxTrials, completed + batch);
+            for (int i = completed; i < to; i++) {
+                trialRandoms[i] = masterRandom.split();
+            }
+
+            if (executor == null) {
+                sequentialRunner.run(trialRandoms, openCounts, completed, to);
+            }
+            else {
+                runTrialsInParallel(n, mode, trialRandoms, openCounts, completed, to, executor,
+                                    null, runners);
+            }
+
+            for (int i = completed; i < to; i++) {
+                int count = i + 1;
+                double threshold = openCounts[i] / gridSites;
+                double delta = threshold - mean;
+                mean += delta / count;
+                squaredDeviations += delta * (threshold - mean);
+
+                if (count >= MIN_ADAPTIVE_TRIALS) {
+                    double halfWidth = CONFIDENCE_95 * Math.sqrt(squaredDeviations / (count - 1))
+                            / Math.sqrt(count);
+                    double target = relative ? targetHalfWidth * Math.abs(mean) : targetHalfWidth;
+                    if (halfWidth <= target) return Arrays.copyOf(openCounts, count);
+                }
+            }
+
+            completed = to;
+        }
+
+        return openCounts;
+    }
+
+    /**
+     * Split the trials from (inclusive) to to (exclusive) in contiguous chunks, a few per core so
+     * that uneven trial lengths balance out, and wait for all of them on executor. A chunk takes an
+     * idle runner from runners and gives it back when done, so only one runner, with its grid, is
+     * ever allocated per worker running at the same time, however many chunks and batches.
+     */
+    private static void runTrialsInParallel(int n, TrialMode mode, SplittableRandom[] trialRandoms,
+                                            int[] openCounts, int from, int to,
+                                            ExecutorService executor,
+                                            TrialCheckpoint checkpoint,
+                                            ConcurrentLinkedQueue<TrialRunner> runners) {
+        int trials = to - from;
+        int chunks = Math.min(trials, Runtime.getRuntime().availableProcessors() * 4);
+
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int chunkFrom = from + (int) ((long) trials * c / chunks);
+            final int chunkTo = from + (int) ((long) trials * (c + 1) / chunks);
+            futures.add(executor.submit(() -> {
+                TrialRunner runner = runners.poll();
+                if (runner == null) runner = new TrialRunner(n, mode, checkpoint);
+                try {
+                    runner.run(trialRandoms, openCounts, chunkFrom, chunkTo);
+                } finally {
+                    runners.add(runner);
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running trials", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A trial failed", e.getCause());
+        }
+    }
+
+    /**
+     * Memory-mapped record of the open count of every completed trial. The file starts with a
+     * header identifying the run, followed by one int per trial, 0 until the trial completes.
+     * Trials write distinct slots through absolute puts, so workers can record concurrently.
+     *
+     * @author Alessio Vallero
+     */
+    private static class TrialCheckpoint {
+        private static final int MAGIC = 0x50435450;    // "PCTP"
+        private static final int HEADER_BYTES = 32;
+
+        private final MappedByteBuffer mapping;
+        private final int trials;
+
+        private TrialCheckpoint(MappedByteBuffer mapping, int trials) {
+            this.mapping = mapping;
+            this.trials = trials;
+        }
+
+        /**
+         * Open the checkpoint of a run, creating it if the file is empty or missing. A file of the
+         * right size whose header is all zeros was sized by a run that died before writing the
+         * header, and is initialised again. Throw an IllegalArgumentException if the file holds
+         * the checkpoint of a different run.
+         */
+        public static TrialCheckpoint open(File file, int n, int trials, TrialMode mode, long seed)
+                throws IOException {
+            if (file == null || mode == null) throw new IllegalArgumentException();
+            validateStatsInput(n, trials);
+
+            long size = HEADER_BYTES + 4L * trials;
+            if (size > Integer.MAX_VALUE) throw new IllegalArgumentException();
+
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                boolean created = randomAccessFile.length() == 0;
+                if (!created && randomAccessFile.length() != size) {
+                    throw new IllegalArgumentException("Checkpoint " + file + " is of another run");
+                }
+
+                // The mapping stays valid after the file is closed
+                MappedByteBuffer mapping = randomAccessFile.getChannel()
+                        .map(FileChannel.MapMode.READ_WRITE, 0, size);
+                mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+                boolean headerWritten = false;
+                for (int i = 0; i < HEADER_BYTES; i += 8) {
+                    if (mapping.getLong(i) != 0) headerWritten = true;
+                }
+                if (!created && !headerWritten) {
+                    // No trial is recorded before the header, but clear the slots to be sure
+                    for (int i = 0; i < trials; i++) {
+                        mapping.putInt(HEADER_BYTES + 4 * i, 0);
+                    }
+                    created = true;
+                }
+
+                if (created) {
+                    mapping.putInt(4, n);
+                    mapping.putInt(8, trials);
+                    mapping.putInt(12, mode.ordinal());
+                    mapping.putLong(16, seed);
+                    // Written last, so a half-written header is never taken for a valid one
+                    mapping.putInt(0, MAGIC);
+                    mapping.force();
+                }
+                else if (mapping.getInt(0) != MAGIC || mapping.getInt(4) != n
+                        || mapping.getInt(8) != trials || mapping.getInt(12) != mode.ordinal()
+                        || mapping.getLong(16) != seed) {
+                    throw new IllegalArgumentException("Checkpoint " + file + " is of another run");
+                }
+
+                return new TrialCheckpoint(mapping, trials);
+            }
+        }
+
+        /**
+         * Open counts recorded so far, 0 for the trials still to run.
+         */
+        public int[] completedOpenCounts() {
+            int[] openCounts = new int[trials];
+            for (int i = 0; i < trials; i++) {
+                openCounts[i] = mapping.getInt(HEADER_BYTES + 4 * i);
+            }
+            return openCounts;
+        }
+
+        /**
+         * Record the open count of a completed trial.
+         */
+        public void record(int trial, int openCount) {
+            mapping.putInt(HEADER_BYTES + 4 * trial, openCount);
+        }
+
+        /**
+         * Write the recorded trials back to the file.
+         */
+        public void force() {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Runs trials on one grid and one set of working arrays, allocated once and reset in
+     * place between trials. Not thread safe: each worker owns its runner.
+     *
+     * @author Alessio Vallero
+     */
+    private static class TrialRunner {
+        private final int gridDiameter;
+        private final TrialMode mode;
+        private final Percolation percolation;
+        private final int[] sites;
+        private final TrialCheckpoint checkpoint;
+
+        public TrialRunner(int n, TrialMode mode, TrialCheckpoint checkpoint) {
+            this.gridDiameter = n;
+            this.mode = mode;
+            this.checkpoint = checkpoint;
+
+            percolation = new Percolation(n);
+
+            if (mode == TrialMode.PERMUTATION) {
+                sites = new int[n * n];
+                for (int i = 0; i < sites.length; i++) {
+                    sites[i] = i;
+                }
+            }
+            else {
+                sites = null;
+            }
+        }
+
+        /**
+         * Run trials from (inclusive) to to (exclusive), storing the open count at which each one
+         * percolated. Trials with a count already stored, i.e. restored from a checkpoint, are
+         * skipped: a grid never percolates with 0 open sites.
+         */
+        public void run(SplittableRandom[] trialRandoms, int[] openCounts, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (openCounts[i] != 0) continue;
+
+                percolation.reset();
+
+                if (mode == TrialMode.PERMUTATION) {
+                    openCounts[i] = permutationTrial(trialRandoms[i]);
+                }
+                else {
+                    openCounts[i] = randomSitesTrial(trialRandoms[i]);
+                }
+
+                if (checkpoint != null) checkpoint.record(i, openCounts[i]);
+            }
+        }
+
+        /**
+         * Run one trial opening uniformly drawn row/col pairs until the grid percolates.
+         *
+         * @param random Random stream of this trial
+         * @return Number of open sites at which the grid first percolated
+         */
+        private int randomSitesTrial(SplittableRandom random) {
+            do {
+                int randomRow = random.nextInt(1, gridDiameter + 1);
+                int randomCol = random.nextInt(1, gridDiameter + 1);
+
+                percolation.open(randomRow, randomCol);
+
+            } while (!percolation.percolates());
+
+            return percolation.numberOfOpenSites();
+        }
+
+        /**
+         * Run one Newman–Ziff trial: the permutation is built lazily with an incremental
+         * Fisher–Yates shuffle, so only the sites actually opened cost a random draw. Once a
+         * position has been consumed it stores its swap target instead of the site, which lets
+         * the array be restored to the identity in O(opened) at the end, so the result only
+         * depends on this trial's stream.
+         *
+         * @param random Random stream of this trial
+         * @return Number of open sites at which the grid first percolated
+         */
+        private int permutationTrial(SplittableRandom random) {
+            int opened = 0;
+            do {
+                int swap = random.nextInt(opened, sites.length);
+                int site = sites[swap];
+                sites[swap] = sites[opened];
+                sites[opened] = swap;
+                opened++;
+
+                percolation.open(site / gridDiameter + 1, site % gridDiameter + 1);
+            } while (!percolation.percolates());
+
+            // Swap targets are >= their position, so walking backwards never clobbers one still
+            // needed
+            for (int k = opened - 1; k >= 0; k--) {
+                int swap = sites[k];
+                sites[swap] = swap;
+                sites[k] = k;
+            }
+
+            return opened;
+        }
+    }
+
+    /**
+     * Throw an IllegalStateException if the stats were not computed in PERMUTATION mode.
+     */
+    private void validateCurveAvailable() {
+        if (percolationOpenCounts == null) throw new IllegalStateException();
+    }
+
+    /**
+     * Estimated probability that the grid percolates with exactly openSites open sites, i.e. the
+     * fraction of trials that had already percolated at that open count. O(log T).
+     *
+     * @param openSites Number of open sites, between 0 and n^2
+     * @return Fraction of trials percolating with openSites open sites
+     */
+    public double percolationProbability(int openSites) {
+        validateCurveAvailable();
+        if (openSites < 0 || openSites > gridSites) throw new IllegalArgumentException();
+
+        // Number of trials whose percolation count is <= openSites
+        int lo = 0, hi = percolationOpenCounts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (percolationOpenCounts[mid] <= openSites) lo = mid + 1;
+            else hi = mid;
+        }
+
+        return lo * 1.0 / percolationOpenCounts.length;
+    }
+
+    /**
+     * Estimated probability that the grid percolates when each site is open with probability p.
+     * The fixed open count curve is convolved with the binomial distribution B(n^2, p); the
+     * weights are built outwards from the mode with ratios, so no factorials are needed.
+     *
+     * @param p Site vacancy probability, between 0 and 1
+     * @return Probability that the grid percolates
+     */
+    public double percolationProbability(double p) {
+        validateCurveAvailable();
+        if (p < 0.0 || p > 1.0) throw new IllegalArgumentException();
+        if (p == 0.0) return percolationProbability(0);
+        if (p == 1.0) return percolationProbability(gridSites);
+
+        final double negligible = 1e-16;
+        final double odds = p / (1.0 - p);
+        int mode = (int) Math.min(gridSites, Math.floor((gridSites + 1) * p));
+
+        double weightSum = 1.0;
+        double probability = percolationProbability(mode);
+
+        // Walk right: B(k + 1) = B(k) * (N - k) / (k + 1) * p / (1 - p)
+        double weight = 1.0;
+        for (int k = mode; k < gridSites && weight > negligible; k++) {
+            weight *= (gridSites - k) * odds / (k + 1);
+            weightSum += weight;
+            probability += weight * percolationProbability(k + 1);
+        }
+
+        // Walk left: B(k - 1) = B(k) * k / (N - k + 1) * (1 - p) / p
+        weight = 1.0;
+        for (int k = mode; k > 0 && weight > negligible; k--) {
+            weight *= k / ((gridSites - k + 1) * odds);
+            weightSum += weight;
+            probability += weight * percolationProbability(k - 1);
+        }
+
+        return probability / weightSum;
+    }
+
+    /**
+     * Full fixed open count percolation curve: element k is the probability that the grid
+     * percolates with k open sites. Built in one pass over the sorted trial results; it holds
+     * n^2 + 1 doubles, so prefer percolationProbability(int) for very large grids.
+     *
+     * @return Percolation probability for every open count from 0 to n^2
+     */
+    public double[] percolationCurve() {
+        validateCurveAvailable();
+
+        double[] curve = new double[gridSites + 1];
+        int percolated = 0;
+        for (int k = 0; k <= gridSites; k++) {
+            while (percolated < percolationOpenCounts.length
+                    && percolationOpenCounts[percolated] <= k) {
+                percolated++;
+            }
+            curve[k] = percolated * 1.0 / percolationOpenCounts.length;
+        }
+
+        return curve;
+    }
+
+    /**
+     * Number of trials the statistics were computed on. With a target confidence interval width
+     * this may be less than the maximum trial budget.
+     *
+     * @return Number of completed trials
+     */
+    public int trials() {
+        return trialsUsed;
+    }
+
     /**
      * Sample mean of percolation threshold
      *
@@ -101,23 +668,71 @@ public class PercolationStats {
     /**
      * Test client
      *
-     * @param args Proper Usage is: PercolationStats <GRID_SIZE> <TRIALS_N>
+     * @param args Proper Usage is: PercolationStats <GRID_SIZE> <TRIALS_N> [RANDOM_SITES|PERMUTATION]
+     *             [SEED] [THREADS] [TARGET_HALF_WIDTH] [CHECKPOINT_FILE]. With a seed, trials run
+     *             on a ForkJoinPool of THREADS threads (default: all cores, 0: sequential). With a
+     *             target half-width above 0, TRIALS_N is the maximum trial budget. Otherwise, with a
+     *             checkpoint file, completed trials are recorded there and a rerun resumes from it
      */
     public static void main(String[] args) {
         // Check how many arguments were passed in
         if (args.length < 2) {
-            System.out.println("Proper Usage is: PercolationStats <GRID_SIZE> <TRIALS_N>");
+            System.out.println("Proper Usage is: PercolationStats <GRID_SIZE> <TRIALS_N> [RANDOM_SITES|PERMUTATION] [SEED] [THREADS] [TARGET_HALF_WIDTH] [CHECKPOINT_FILE]");
         }
         else {
+            TrialMode mode = args.length > 2 ? TrialMode.valueOf(args[2]) : TrialMode.RANDOM_SITES;
+
             Stopwatch stopwatch = new Stopwatch();
-            PercolationStats percolationStats = new PercolationStats(Integer.parseInt(args[0]),
-                                                                     Integer.parseInt(args[1]));
+            PercolationStats percolationStats;
+            if (args.length > 3) {
+                int threads = args.length > 4 ? Integer.parseInt(args[4])
+                                              : Runtime.getRuntime().availableProcessors();
+                ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : null;
+                double targetHalfWidth = args.length > 5 ? Double.parseDouble(args[5]) : 0.0;
+                try {
+                    if (targetHalfWidth > 0.0) {
+                        percolationStats = new PercolationStats(Integer.parseInt(args[0]),
+                                                                targetHalfWidth, false,
+                                                                Integer.parseInt(args[1]), mode,
+                                                                Long.parseLong(args[3]), pool);
+                    }
+                    else if (args.length > 6) {
+                        percolationStats = new PercolationStats(Integer.parseInt(args[0]),
+                                                                Integer.parseInt(args[1]), mode,
+                                                                Long.parseLong(args[3]), pool,
+                                                                new File(args[6]));
+                    }
+                    else {
+                        percolationStats = new PercolationStats(Integer.parseInt(args[0]),
+                                                                Integer.parseInt(args[1]), mode,
+                                                                Long.parseLong(args[3]), pool);
+                    }
+                } catch (IOException e) {
+                    System.out.println("An error occurred.");
+                    e.printStackTrace();
+                    return;
+                } finally {
+                    if (pool != null) pool.shutdown();
+                }
+            }
+            else {
+                percolationStats = new PercolationStats(Integer.parseInt(args[0]),
+                                                        Integer.parseInt(args[1]), mode);
+            }
             System.out.println("elapsed time: " + stopwatch.elapsedTime());
 
+            System.out.println("trials: " + percolationStats.trials());
             System.out.println("mean: " + percolationStats.mean());
             System.out.println("stddev: " + percolationStats.stddev());
             System.out.println("95% confidence interval: [" + percolationStats.confidenceLo() + ", "
                                        + percolationStats.confidenceHi() + "]");
+
+            if (mode == TrialMode.PERMUTATION) {
+                for (double p = 0.55; p < 0.64; p += 0.01) {
+                    System.out.printf("P(percolates | p = %.2f) = %.4f%n", p,
+                                      percolationStats.percolationProbability(p));
+                }
+            }
         }
     }
 }
@@ -0,0 +1,317 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The StreamingPercolation class decides whether an n-by-n open-site matrix percolates, and finds
+ * its largest cluster, reading it one row at a time with the Hoshen–Kopelman algorithm. Only the
+ * labels of the previous and the current row are kept, so memory is O(n) instead of O(n^2) and
+ * the grid does not have to fit in memory or in int indexes.
+ *
+ * @author Alessio Vallero
+ */
+public class StreamingPercolation {
+    /**
+     * Source of the open-site matrix, one row at a time and in order.
+     */
+    public interface OpenSiteRows {
+        /**
+         * Fill words with the open sites of row: bit (col % 64) of words[col / 64] is set if
+         * site (row, col) is open. Rows and columns are 0-based.
+         *
+         * @param row   Row number, from 0 to n - 1
+         * @param words Array of (n + 63) / 64 words to fill
+         */
+        void readRow(int row, long[] words);
+    }
+
+    /**
+     * Open-site rows read from a memory-mapped bitmap file. The file holds the rows in order, each
+     * one padded to (n + 63) / 64 little-endian longs. Windows of whole rows are mapped on demand,
+     * so files larger than 2GB are supported.
+     *
+     * @author Alessio Vallero
+     */
+    public static class MappedBitmapRows implements OpenSiteRows, Closeable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final int rowWords;
+        private final int rowsPerWindow;
+        private LongBuffer window;
+        private int windowFirstRow = -1;
+
+        /**
+         * Open a bitmap file of an n-by-n grid.
+         *
+         * @param filename Bitmap file
+         * @param n        Size of the grid
+         * @throws IOException if the file cannot be opened or is too short
+         */
+        public MappedBitmapRows(String filename, int n) throws IOException {
+            if (n <= 0) throw new IllegalArgumentException();
+
+            rowWords = (n + 63) >>> 6;
+            rowsPerWindow = Math.max(1, Integer.MAX_VALUE / (rowWords * 8));
+
+            file = new RandomAccessFile(filename, "r");
+            channel = file.getChannel();
+            if (channel.size() < (long) n * rowWords * 8) {
+                close();
+                throw new IOException("Bitmap file too short for a " + n + "x" + n + " grid");
+            }
+        }
+
+        @Override
+        public void readRow(int row, long[] words) {
+            if (window == null || row < windowFirstRow || row >= windowFirstRow + rowsPerWindow) {
+                try {
+                    long rowBytes = rowWords * 8L;
+                    long rows = Math.min(rowsPerWindow, channel.size() / rowBytes - row);
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, row * rowBytes,
+                                         rows * rowBytes)
+                            .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                    windowFirstRow = row;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            window.position((row - windowFirstRow) * rowWords);
+            window.get(words, 0, rowWords);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            file.close();
+        }
+    }
+
+    private final boolean percolates;
+    private final long largestCluster;
+    private final long openCount;
+
+    // Union-find over cluster labels: 0..n-1 are the compacted labels of the previous row,
+    // n..2n-1 the labels created in the current row
+    private final int[] id;     // id[i] = parent of i
+    private final long[] sz;    // sz[i] = number of open sites in the cluster rooted at i
+    private final boolean[] top;  // top[i] = cluster rooted at i touches the first row
+
+    /**
+     * Scan the n-by-n open-site matrix given by rows, from the first to the last row.
+     *
+     * @param n    Size of the grid
+     * @param rows Source of the open sites
+     */
+    public StreamingPercolation(int n, OpenSiteRows rows) {
+        if (n <= 0 || rows == null) throw new IllegalArgumentException();
+
+        id = new int[2 * n];
+        sz = new long[2 * n];
+        top = new boolean[2 * n];
+
+        long[] words = new long[(n + 63) >>> 6];
+        int[] previousLabels = new int[n];
+        int[] currentLabels = new int[n];
+        Arrays.fill(previousLabels, -1);
+
+        // Scratch arrays indexed by union-find slot, kept all -1 / false between rows
+        int[] compacted = new int[2 * n];
+        Arrays.fill(compacted, -1);
+        boolean[] alive = new boolean[2 * n];
+        long[] compactedSz = new long[n];
+        boolean[] compactedTop = new boolean[n];
+
+        int previousCount = 0;
+        long largest = 0, opened = 0;
+
+        for (int row = 0; row < n; row++) {
+            rows.readRow(row, words);
+
+            int nextLabel = n;
+            for (int col = 0; col < n; col++) {
+                if ((words[col >>> 6] >>> col & 1L) == 0) {
+                    currentLabels[col] = -1;
+                    continue;
+                }
+                opened++;
+
+                // Continue the run on the left, or start a new cluster
+                int label;
+                if (col > 0 && currentLabels[col - 1] >= 0) {
+                    label = currentLabels[col - 1];
+                }
+                else {
+                    label = nextLabel++;
+                    id[label] = label;
+                    sz[label] = 0;
+                    top[label] = row == 0;
+                }
+                sz[find(label)]++;
+
+                if (previousLabels[col] >= 0) union(label, previousLabels[col]);
+
+                currentLabels[col] = label;
+            }
+
+            // Clusters of the previous row no longer reachable from this row are complete
+            for (int col = 0; col < n; col++) {
+                if (currentLabels[col] >= 0) alive[find(currentLabels[col])] = true;
+            }
+            for (int label = 0; label < previousCount; label++) {
+                int root = find(label);
+                if (!alive[root]) largest = Math.max(largest, sz[root]);
+            }
+
+            // Compact the live clusters into labels 0..count-1 for the next row
+            int count = 0;
+            for (int col = 0; col < n; col++) {
+                if (currentLabels[col] < 0) {
+                    previousLabels[col] = -1;
+                    continue;
+                }
+
+                int root = find(currentLabels[col]);
+                if (compacted[root] < 0) {
+                    compactedSz[count] = sz[root];
+                    compactedTop[count] = top[root];
+                    compacted[root] = count++;
+                }
+                previousLabels[col] = compacted[root];
+            }
+
+            // Roots only live in the slots used by this row, so only those need clearing
+            for (int label = 0; label < previousCount; label++) {
+                compacted[label] = -1;
+                alive[label] = false;
+            }
+            for (int label = n; label < nextLabel; label++) {
+                compacted[label] = -1;
+                alive[label] = false;
+            }
+
+            for (int label = 0; label < count; label++) {
+                id[label] = label;
+                sz[label] = compactedSz[label];
+                top[label] = compactedTop[label];
+            }
+            previousCount = count;
+        }
+
+        // Clusters reaching the last row are complete too; one touching the top percolates
+        boolean percolating = false;
+        for (int label = 0; label < previousCount; label++) {
+            largest = Math.max(largest, sz[label]);
+            if (top[label]) percolating = true;
+        }
+
+        percolates = percolating;
+        largestCluster = largest;
+        openCount = opened;
+    }
+
+    /**
+     * Return root for label p, halving the path on the way up
+     *
+     * @param p Label for which return the root
+     * @return Root label of p
+     */
+    private int find(int p) {
+        while (p != id[p]) {
+            id[p] = id[id[p]];
+            p = id[p];
+        }
+        return p;
+    }
+
+    /**
+     * Merge the clusters of labels p and q, combining their size and top flag.
+     *
+     * @param p First label
+     * @param q Second label
+     */
+    private void union(int p, int q) {
+        int i = find(p);
+        int j = find(q);
+        if (i == j) return;
+
+        // make smaller root point to larger one
+        if (sz[i] < sz[j]) {
+            id[i] = j;
+            sz[j] += sz[i];
+            top[j] |= top[i];
+        }
+        else {
+            id[j] = i;
+            sz[i] += sz[j];
+            top[i] |= top[j];
+        }
+    }
+
+    /**
+     * Does the matrix percolate, i.e. is some open site of the last row connected to the first row?
+     *
+     * @return true if the matrix percolates, false otherwise
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Number of sites of the largest cluster of open sites
+     *
+     * @return Size of the largest cluster, 0 if no site is open
+     */
+    public long largestCluster() {
+        return largestCluster;
+    }
+
+    /**
+     * Returns the number of open sites
+     *
+     * @return Number of open sites in the matrix
+     */
+    public long numberOfOpenSites() {
+        return openCount;
+    }
+
+    /**
+     * Test client: streams a random grid where each site is open with probability p, generated
+     * row by row so it is never held in memory.
+     *
+     * @param args Proper Usage is: StreamingPercolation <GRID_SIZE> <P> [SEED]
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 2) {
+            System.out.println("Proper Usage is: StreamingPercolation <GRID_SIZE> <P> [SEED]");
+        }
+        else {
+            final int n = Integer.parseInt(args[0]);
+            final double p = Double.parseDouble(args[1]);
+            final SplittableRandom random = new SplittableRandom(
+                    args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime());
+
+            Stopwatch stopwatch = new Stopwatch();
+            StreamingPercolation streamingPercolation = new StreamingPercolation(n, (row, words) -> {
+                Arrays.fill(words, 0L);
+                for (int col = 0; col < n; col++) {
+                    if (random.nextDouble() < p) words[col >>> 6] |= 1L << col;
+                }
+            });
+            System.out.println("elapsed time: " + stopwatch.elapsedTime());
+
+            System.out.println("open sites: " + streamingPercolation.numberOfOpenSites());
+            System.out.println("percolates: " + streamingPercolation.percolates());
+            System.out.println("largest cluster: " + streamingPercolation.largestCluster());
+        }
+    }
+}
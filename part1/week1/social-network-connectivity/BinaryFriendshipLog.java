@@ -0,0 +1,320 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The BinaryFriendshipLog class models a friendship log in a compact fixed-width binary format,
+ * instead of the <TIMESTAMP> <ID_PERSON1> <ID_PERSON2> text lines. All values are little-endian:
+ * - a 32-byte header: magic, version, record count (long), smallest ID, largest ID;
+ * - one 16-byte record per friendship: timestamp (long), first ID (int), second ID (int).
+ * Records are in the same order as the lines of the text log. Fixed-width records can be read
+ * straight from a memory mapping, with no parsing at all.
+ *
+ * @author Alessio Vallero
+ */
+public class BinaryFriendshipLog implements Closeable {
+    public static final int HEADER_BYTES = 32;
+    public static final int RECORD_BYTES = 16;
+
+    private static final int MAGIC = 0x46524c47;    // "FRLG"
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private final int minId;
+    private final int maxId;
+
+    /**
+     * Open a binary log and read its header.
+     *
+     * @param filename Binary log file
+     * @throws IOException if the file cannot be read or is not a binary friendship log
+     */
+    public BinaryFriendshipLog(String filename) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+
+            recordCount = header.getLong(8);
+            minId = header.getInt(16);
+            maxId = header.getInt(20);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || channel.size() != HEADER_BYTES + recordCount * RECORD_BYTES) {
+                throw new IOException(filename + " is not a binary friendship log");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Number of friendships in the log
+     *
+     * @return Number of records
+     */
+    public long recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Smallest person ID in the log, 0 if the log is empty
+     *
+     * @return Smallest ID
+     */
+    public int minId() {
+        return minId;
+    }
+
+    /**
+     * Largest person ID in the log, -1 if the log is empty
+     *
+     * @return Largest ID
+     */
+    public int maxId() {
+        return maxId;
+    }
+
+    /**
+     * Map count records starting from record first. Record k of the returned buffer starts at
+     * byte k * RECORD_BYTES; the buffer is little-endian already.
+     *
+     * @param first First record
+     * @param count Number of records, at most Integer.MAX_VALUE / RECORD_BYTES
+     * @return Read-only mapping of the records
+     * @throws IOException if the records cannot be mapped
+     */
+    public MappedByteBuffer mapRecords(long first, int count) throws IOException {
+        if (first < 0 || count < 0 || count > Integer.MAX_VALUE / RECORD_BYTES
+                || first + count > recordCount)
+            throw new IllegalArgumentException();
+
+        MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY,
+                                               HEADER_BYTES + first * RECORD_BYTES,
+                                               (long) count * RECORD_BYTES);
+        records.order(ByteOrder.LITTLE_ENDIAN);
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Convert a text log into the binary format, streaming it through fixed-size buffers so logs
+     * of any size can be converted. IDs must fit in an int.
+     *
+     * @param textFilename   Text log, one <TIMESTAMP> <ID_PERSON1> <ID_PERSON2> line per friendship
+     * @param binaryFilename Binary log to write, replaced if it exists
+     * @return Number of records written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long convert(String textFilename, String binaryFilename) throws IOException {
+        try (TextReader input = new TextReader(textFilename);
+             FileChannel output = FileChannel.open(Paths.get(binaryFilename),
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            output.position(HEADER_BYTES);
+
+            long records = 0;
+            int minId = Integer.MAX_VALUE, maxId = Integer.MIN_VALUE;
+            long[] fields = new long[3];
+            int line = 0;
+            while (true) {
+                line++;
+                int fieldCount = input.readLine(fields);
+                if (fieldCount < 0) break;
+                if (fieldCount == 0) continue;
+                if (fieldCount != 3 || fields[1] != (int) fields[1] || fields[2] != (int) fields[2])
+                    throw new IllegalArgumentException("Malformed line " + line + " of " + textFilename);
+
+                if (buffer.remaining() < RECORD_BYTES) writeFully(buffer, output);
+                buffer.putLong(fields[0]).putInt((int) fields[1]).putInt((int) fields[2]);
+
+                minId = Math.min(minId, (int) Math.min(fields[1], fields[2]));
+                maxId = Math.max(maxId, (int) Math.max(fields[1], fields[2]));
+                records++;
+            }
+            writeFully(buffer, output);
+
+            // Header written last, once the count and the range are known
+            if (records == 0) {
+                minId = 0;
+                maxId = -1;
+            }
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(records).putInt(minId).putInt(maxId)
+                  .putLong(0);
+            buffer.flip();
+            while (buffer.hasRemaining()) output.write(buffer, buffer.position());
+
+            return records;
+        }
+    }
+
+    /**
+     * Reader of the lines of a text log, each as up to three space-separated decimal numbers.
+     * The file is read through a FileChannel in bulk into a byte array, and the lines are parsed
+     * straight from the array, so no byte goes through a per-byte stream call.
+     */
+    static class TextReader implements Closeable {
+        private final FileChannel channel;
+        private final byte[] bytes = new byte[BUFFER_BYTES];
+        private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        private int position;    // start of the next line in bytes
+        private int limit;       // end of the bytes read so far
+        private boolean endOfInput;
+
+        TextReader(String filename) throws IOException {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        }
+
+        /**
+         * Read the next line into fields.
+         * @return Number of fields read, fields.length + 1 if there are more, -1 at the end of
+         * input
+         */
+        int readLine(long[] fields) throws IOException {
+            int lineEnd = position;
+            while (true) {
+                while (lineEnd < limit && bytes[lineEnd] != '\n') lineEnd++;
+                if (lineEnd < limit || endOfInput) break;
+
+                // The line goes on past the bytes read so far: keep its start and read more
+                lineEnd -= position;
+                fill();
+            }
+            if (position == limit) return -1;
+
+            int fieldCount = parseLine(bytes, position, lineEnd, fields);
+            position = Math.min(lineEnd + 1, limit);
+            return fieldCount;
+        }
+
+        /**
+         * Move the current line to the start of bytes and read after it.
+         */
+        private void fill() throws IOException {
+            System.arraycopy(bytes, position, bytes, 0, limit - position);
+            limit -= position;
+            position = 0;
+            if (limit == bytes.length)
+                throw new IllegalArgumentException("Line longer than " + BUFFER_BYTES + " bytes");
+
+            buffer.limit(bytes.length).position(limit);
+            int read = channel.read(buffer);
+            if (read < 0) endOfInput = true;
+            else limit += read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Parse bytes from (inclusive) to to (exclusive), one line without its '\n', as up to
+     * fields.length space-separated decimal numbers into fields. A number that does not fit in a
+     * long is rejected as soon as it would overflow, instead of wrapping into a valid ID.
+     * @return Number of fields read, fields.length + 1 if there are more
+     * @throws IllegalArgumentException on a bare sign, an invalid character or a number out of range
+     */
+    static int parseLine(byte[] bytes, int from, int to, long[] fields) {
+        int fieldCount = 0;
+        boolean negative = false;
+        int digits = -1;    // digits of the current field, -1 between fields
+        long value = 0;
+        for (int i = from; i <= to; i++) {
+            byte b = i < to ? bytes[i] : (byte) ' ';
+            if (b == ' ' || b == '\r') {
+                if (digits == 0) throw new IllegalArgumentException("Sign without digits");
+                if (digits > 0) {
+                    if (fieldCount == fields.length) return fields.length + 1;
+                    fields[fieldCount++] = negative ? -value : value;
+                    digits = -1;
+                }
+            }
+            else if (b == '-' && digits < 0) {
+                digits = 0;
+                negative = true;
+                value = 0;
+            }
+            else if (b >= '0' && b <= '9') {
+                if (digits < 0) {
+                    digits = 0;
+                    negative = false;
+                    value = 0;
+                }
+                digits++;
+                int digit = b - '0';
+                if (value > (Long.MAX_VALUE - digit) / 10)
+                    throw new IllegalArgumentException("Number out of range");
+                value = value * 10 + digit;
+            }
+            else {
+                throw new IllegalArgumentException("Invalid character " + (char) b);
+            }
+        }
+
+        return fieldCount;
+    }
+
+    /**
+     * Write the content of buffer to channel and clear it.
+     */
+    private static void writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Test client: converts a text log to the binary format, then finds the earliest complete
+     * connection in both.
+     *
+     * @param args Proper Usage is: BinaryFriendshipLog <TEXT_LOG> <BINARY_LOG>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 2) {
+            System.out.println("Proper Usage is: BinaryFriendshipLog <TEXT_LOG> <BINARY_LOG>");
+        }
+        else {
+            try {
+                Stopwatch stopwatch = new Stopwatch();
+                long records = convert(args[0], args[1]);
+                System.out.println(records + " records converted in " + stopwatch.elapsedTime());
+
+                int people;
+                try (BinaryFriendshipLog log = new BinaryFriendshipLog(args[1])) {
+                    people = log.maxId() + 1;
+                }
+
+                stopwatch = new Stopwatch();
+                String text = new SocialNetworkConnectivity(people)
+                        .earliestCompleteConnectionMapped(args[0], null);
+                System.out.println("text: '" + text + "' in " + stopwatch.elapsedTime());
+
+                stopwatch = new Stopwatch();
+                String binary = new SocialNetworkConnectivity(people)
+                        .earliestCompleteConnectionBinary(args[1]);
+                System.out.println("binary: '" + binary + "' in " + stopwatch.elapsedTime());
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            }
+        }
+    }
+}
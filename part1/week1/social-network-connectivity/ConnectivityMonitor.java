@@ -0,0 +1,379 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * The ConnectivityMonitor class follows a live friendship feed, one edge at a time, and calls
+ * back when the network crosses thresholds: at most a given number of groups, everybody
+ * connected, or a group holding at least a given fraction of the people. The component count and
+ * the largest component only move one way as friendships arrive, so pending thresholds are kept
+ * in heaps ordered by which one is reached first, and an edge only has to look at the top of
+ * each heap: O(α(n)) per edge plus O(log t) per threshold fired.
+ *
+ * @author Alessio Vallero
+ */
+public class ConnectivityMonitor {
+    /**
+     * Receives the thresholds crossed by the network.
+     */
+    public interface ThresholdListener {
+        /**
+         * Called once, on the friendship that makes the threshold true.
+         *
+         * @param timestamp        Timestamp of the friendship
+         * @param components       Number of groups of connected people
+         * @param largestComponent Number of people in the largest group
+         */
+        void thresholdReached(long timestamp, int components, int largestComponent);
+    }
+
+    /**
+     * Receives the lines of a feed that follow() skipped.
+     */
+    public interface MalformedLineListener {
+        /**
+         * Called once per skipped line.
+         *
+         * @param line   Number of the line in the feed, from 1
+         * @param reason Why the line was skipped
+         */
+        void malformedLine(long line, String reason);
+    }
+
+    /**
+     * Pending threshold: reached when the component count drops to value, or when the largest
+     * component grows to value.
+     */
+    private static class Threshold {
+        private final int value;
+        private final ThresholdListener listener;
+
+        private Threshold(int value, ThresholdListener listener) {
+            this.value = value;
+            this.listener = listener;
+        }
+    }
+
+    private final UnionFind unionFind;
+    private final int[] componentSizes;    // componentSizes[root] = size of the component of root
+    private int largestComponent;
+
+    // Next to be reached on top: highest component count, smallest largest component
+    private final PriorityQueue<Threshold> componentThresholds =
+            new PriorityQueue<>(Comparator.comparingInt((Threshold t) -> t.value).reversed());
+    private final PriorityQueue<Threshold> largestComponentThresholds =
+            new PriorityQueue<>(Comparator.comparingInt((Threshold t) -> t.value));
+
+    // Line being parsed by follow(), kept across reads that end mid-line
+    private final long[] fields = new long[3];
+    private int fieldCount;
+    private int digits = -1;    // digits of the current field, -1 between fields
+    private boolean negative;
+    private boolean malformed;
+    private boolean idOutOfRange;
+    private long lineNumber;
+    private long malformedLines;
+    private MalformedLineListener malformedLineListener;
+
+    /**
+     * Creates a monitor of n people with no friendships yet.
+     *
+     * @param n Number of people
+     */
+    public ConnectivityMonitor(int n) {
+        this(n, UnionFindStrategy.PATH_HALVING);
+    }
+
+    /**
+     * Creates a monitor of n people with no friendships yet, using the given union-find
+     * implementation.
+     *
+     * @param n        Number of people
+     * @param strategy Union-find implementation
+     */
+    public ConnectivityMonitor(int n, UnionFindStrategy strategy) {
+        if (n <= 0 || strategy == null) throw new IllegalArgumentException();
+
+        unionFind = strategy.create(n);
+        componentSizes = new int[n];
+        Arrays.fill(componentSizes, 1);
+        largestComponent = 1;
+    }
+
+    /**
+     * Call listener once the people are split in at most components groups. If that is already
+     * the case, listener is called by the next friendship.
+     *
+     * @param components Number of groups, at least 1
+     * @param listener   Listener to call
+     */
+    public void onComponentCountAtMost(int components, ThresholdListener listener) {
+        if (components < 1 || listener == null) throw new IllegalArgumentException();
+
+        componentThresholds.add(new Threshold(components, listener));
+    }
+
+    /**
+     * Call listener once everybody is connected.
+     *
+     * @param listener Listener to call
+     */
+    public void onFullyConnected(ThresholdListener listener) {
+        onComponentCountAtMost(1, listener);
+    }
+
+    /**
+     * Call listener once a single group holds at least fraction of the people. If that is
+     * already the case, listener is called by the next friendship.
+     *
+     * @param fraction Fraction of the people, between 0 and 1
+     * @param listener Listener to call
+     */
+    public void onLargestComponentAtLeast(double fraction, ThresholdListener listener) {
+        if (!(fraction >= 0 && fraction <= 1) || listener == null) throw new IllegalArgumentException();
+
+        int people = (int) Math.ceil(fraction * unionFind.size());
+        largestComponentThresholds.add(new Threshold(people, listener));
+    }
+
+    /**
+     * Call listener for every line of the feed that follow() skips, instead of skipping it
+     * silently.
+     *
+     * @param listener Listener to call, null to skip silently
+     */
+    public void onMalformedLine(MalformedLineListener listener) {
+        malformedLineListener = listener;
+    }
+
+    /**
+     * Return the number of lines follow() skipped as malformed.
+     *
+     * @return Number of skipped lines
+     */
+    public long malformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * Are there thresholds not reached yet?
+     *
+     * @return true if some listener is still waiting, false otherwise
+     */
+    public boolean hasPendingThresholds() {
+        return !componentThresholds.isEmpty() || !largestComponentThresholds.isEmpty();
+    }
+
+    /**
+     * Return the number of groups of connected people.
+     *
+     * @return Number of groups
+     */
+    public int components() {
+        return unionFind.count();
+    }
+
+    /**
+     * Return the number of people in the largest group.
+     *
+     * @return Size of the largest group
+     */
+    public int largestComponent() {
+        return largestComponent;
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= unionFind.size())
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (unionFind.size() - 1));
+    }
+
+    /**
+     * Record a friendship between p and q, calling the listeners of the thresholds it reaches.
+     *
+     * @param timestamp Timestamp of the friendship
+     * @param p         First person
+     * @param q         Second person
+     */
+    public void connect(long timestamp, int p, int q) {
+        validate(p);
+        validate(q);
+
+        int i = unionFind.find(p);
+        int j = unionFind.find(q);
+        if (i != j) {
+            int root = unionFind.union(i, j);
+            componentSizes[root] = componentSizes[i] + componentSizes[j];
+            if (componentSizes[root] > largestComponent) largestComponent = componentSizes[root];
+        }
+
+        int components = unionFind.count();
+        while (!componentThresholds.isEmpty() && componentThresholds.peek().value >= components) {
+            componentThresholds.poll().listener.thresholdReached(timestamp, components,
+                                                                 largestComponent);
+        }
+        while (!largestComponentThresholds.isEmpty()
+                && largestComponentThresholds.peek().value <= largestComponent) {
+            largestComponentThresholds.poll().listener.thresholdReached(timestamp, components,
+                                                                        largestComponent);
+        }
+    }
+
+    /**
+     * Read <TIMESTAMP> <ID_PERSON1> <ID_PERSON2> lines from input as they arrive and connect
+     * them, until every threshold is reached or the input ends. With tail set, the end of input
+     * is taken as "no new line yet", as when following a log file that keeps growing: input is
+     * polled again after pollMillis. Without it, a last line with no '\n' is connected at the end
+     * of input. Malformed lines, and lines with IDs out of range, are skipped and reported to the
+     * onMalformedLine() listener.
+     *
+     * @param input      Feed of friendships, e.g. System.in or a FileInputStream of a live log
+     * @param tail       Keep waiting at the end of input instead of returning
+     * @param pollMillis Wait between two polls of a tailed input
+     * @throws IOException          if input cannot be read
+     * @throws InterruptedException if interrupted while waiting for new lines
+     */
+    public void follow(InputStream input, boolean tail, long pollMillis)
+            throws IOException, InterruptedException {
+        byte[] buffer = new byte[1 << 16];
+        while (hasPendingThresholds()) {
+            int read = input.read(buffer);
+            if (read < 0) {
+                if (!tail) {
+                    // Flush a last line with no '\n'
+                    if (fieldCount > 0 || digits >= 0 || malformed) parse((byte) '\n');
+                    return;
+                }
+
+                Thread.sleep(pollMillis);
+                continue;
+            }
+
+            for (int k = 0; k < read && hasPendingThresholds(); k++) {
+                parse(buffer[k]);
+            }
+        }
+    }
+
+    /**
+     * Feed one byte of the friendship feed to the line parser, connecting the line on '\n'.
+     */
+    private void parse(byte b) {
+        if (b >= '0' && b <= '9') {
+            if (digits < 0) startField(false);
+            digits++;
+            if (!malformed && !idOutOfRange) accumulate(b - '0');
+        }
+        else if (b == '-' && digits < 0) {
+            startField(true);
+        }
+        else if (b == ' ' || b == '\r' || b == '\n') {
+            if (digits >= 0) {
+                // A sign with no digits is not a number
+                if (digits == 0) malformed = true;
+                if (!malformed) {
+                    if (negative) fields[fieldCount] = -fields[fieldCount];
+                    fieldCount++;
+                }
+                digits = -1;
+            }
+            if (b == '\n') endLine();
+        }
+        else {
+            malformed = true;
+        }
+    }
+
+    /**
+     * Append digit to the current field, rejecting the line as soon as a timestamp would
+     * overflow or an ID exceeds n - 1, before either can wrap into a valid value.
+     */
+    private void accumulate(int digit) {
+        long value = fields[fieldCount];
+        if (value > (Long.MAX_VALUE - digit) / 10) {
+            malformed = true;
+            return;
+        }
+
+        value = value * 10 + digit;
+        if (fieldCount > 0 && value > unionFind.size() - 1) idOutOfRange = true;
+        else fields[fieldCount] = value;
+    }
+
+    private void startField(boolean negativeField) {
+        if (fieldCount == fields.length) malformed = true;
+        else fields[fieldCount] = 0;
+        digits = 0;
+        negative = negativeField;
+    }
+
+    /**
+     * Connect the line just parsed, or skip and report it.
+     */
+    private void endLine() {
+        lineNumber++;
+        if (malformed || (fieldCount != 0 && fieldCount != 3)) {
+            skipLine("Malformed friendship line");
+        }
+        else if (fieldCount == 3) {
+            int n = unionFind.size();
+            if (idOutOfRange || fields[1] < 0 || fields[2] < 0)
+                skipLine("ID not between 0 and " + (n - 1));
+            else connect(fields[0], (int) fields[1], (int) fields[2]);
+        }
+
+        fieldCount = 0;
+        malformed = false;
+        idOutOfRange = false;
+    }
+
+    private void skipLine(String reason) {
+        malformedLines++;
+        if (malformedLineListener != null) malformedLineListener.malformedLine(lineNumber, reason);
+    }
+
+    /**
+     * Test client: follows a friendship log, or the standard input if no file is given, and
+     * prints the thresholds as they are reached.
+     *
+     * @param args Proper Usage is: ConnectivityMonitor <ARRAY_SIZE> [LOG_FILE]
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 1) {
+            System.out.println("Proper Usage is: ConnectivityMonitor <ARRAY_SIZE> [LOG_FILE]");
+        }
+        else {
+            final int arraySize = Integer.parseInt(args[0]);
+
+            Stopwatch stopwatch = new Stopwatch();
+            ConnectivityMonitor monitor = new ConnectivityMonitor(arraySize);
+            monitor.onMalformedLine((line, reason) ->
+                    System.out.println("line " + line + " skipped: " + reason));
+            for (int percent : new int[] { 50, 90, 99 }) {
+                monitor.onLargestComponentAtLeast(percent / 100.0, (timestamp, components, largest) ->
+                        System.out.println(timestamp + ": largest group has " + percent + "% of the people"));
+            }
+            monitor.onComponentCountAtMost(10, (timestamp, components, largest) ->
+                    System.out.println(timestamp + ": " + components + " groups left"));
+            monitor.onFullyConnected((timestamp, components, largest) ->
+                    System.out.println(timestamp + ": everybody is connected"));
+
+            // A log file is tailed until everybody is connected, the standard input read to its end
+            try (InputStream input = args.length > 1 ? new FileInputStream(args[1]) : System.in) {
+                monitor.follow(input, args.length > 1, 200);
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            System.out.println("elapsed time: " + stopwatch.elapsedTime());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A client program for the ConnectivityMonitor class model: follows a small feed of 4 people
+ * exercising the error paths, a malformed line, a bare sign, IDs out of range or too long for a
+ * long, a timestamp too long for a long, and a last line with no '\n' that connects everybody.
+ *
+ * @author Alessio Vallero
+ */
+public class ConnectivityMonitorFeedCheck {
+    public static void main(String[] args) {
+        String feed = "1 0 1\n"
+                + "2 oops 3\n"
+                + "3 - 2\n"
+                + "4 1 9\n"
+                + "5 1 18446744073709551617\n"
+                + "99999999999999999999 1 2\n"
+                + "7 1 2\n"
+                + "8 2 3";
+        ConnectivityMonitor monitor = new ConnectivityMonitor(4);
+        long[] connectedAt = { -1 };
+        monitor.onFullyConnected((timestamp, components, largest) -> connectedAt[0] = timestamp);
+        monitor.onMalformedLine((line, reason) ->
+                System.out.println("line " + line + " skipped: " + reason));
+
+        try {
+            monitor.follow(new ByteArrayInputStream(feed.getBytes(StandardCharsets.US_ASCII)),
+                           false, 0);
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        System.out.println(monitor.malformedLines() + " lines skipped (expected 5), "
+                                   + "everybody connected at " + connectedAt[0] + " (expected 8)");
+    }
+}
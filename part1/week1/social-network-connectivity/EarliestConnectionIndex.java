@@ -0,0 +1,355 @@
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The EarliestConnectionIndex class answers "when did p and q first become connected?" for any
+ * pair of people in O(1), after a single pass over a sorted friendship log.
+ *
+ * Merging the groups of the log one friendship at a time builds a Kruskal reconstruction tree:
+ * people are the leaves and each merge is an internal node, carrying the merge time, above the
+ * two groups it joins. The time p and q got connected is the time of their lowest common
+ * ancestor. Listing the leaves in order, each adjacent pair is separated by exactly one internal
+ * node, and the lowest common ancestor of two leaves is the latest merge separating them. So
+ * the index only keeps the position of each person in that order and the merge between each
+ * adjacent pair, and answers with a sparse-table range maximum. The order itself is built
+ * without the tree: each group keeps its leaves as a linked list, and a merge appends one list
+ * to the other.
+ *
+ * @author Alessio Vallero
+ */
+public class EarliestConnectionIndex {
+    /**
+     * Returned for two people never connected by the log.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private static final int MAGIC = 0x45434958;    // "ECIX"
+    private static final int HEADER_BYTES = 16;
+    private static final int NOT_MERGED = Integer.MAX_VALUE;
+
+    private final long[] mergeTimes;    // mergeTimes[k] = timestamp of the k-th merge
+    private final int[] positions;      // positions[p] = position of p in leaf order
+    private final int[][] maxMerge;     // maxMerge[j][i] = latest merge between i and i + 2^j
+
+    private EarliestConnectionIndex(long[] mergeTimes, int[] positions, int[] separators) {
+        this.mergeTimes = mergeTimes;
+        this.positions = positions;
+
+        // separators[i] = merge separating leaves i and i + 1, NOT_MERGED between groups
+        int levels = 1;
+        while ((1 << levels) <= separators.length) levels++;
+        maxMerge = new int[levels][];
+        maxMerge[0] = separators;
+        for (int j = 1; j < levels; j++) {
+            int half = 1 << (j - 1);
+            maxMerge[j] = new int[separators.length - (1 << j) + 1];
+            for (int i = 0; i < maxMerge[j].length; i++) {
+                maxMerge[j][i] = Math.max(maxMerge[j - 1][i], maxMerge[j - 1][i + half]);
+            }
+        }
+    }
+
+    /**
+     * Groups being merged in log order, with the leaves of each group as a linked list.
+     */
+    private static class Construction {
+        private final UnionFind unionFind;
+        private final int[] heads, tails;    // first and last leaf of the group of each root
+        private final int[] next;            // next leaf in the list, -1 at the tail
+        private final int[] separatorAfter;  // merge between a leaf and the next one
+        private long[] mergeTimes;
+        private int merges;
+
+        private Construction(int n) {
+            unionFind = UnionFindStrategy.PATH_HALVING.create(n);
+            heads = new int[n];
+            tails = new int[n];
+            next = new int[n];
+            separatorAfter = new int[n];
+            for (int p = 0; p < n; p++) {
+                heads[p] = p;
+                tails[p] = p;
+                next[p] = -1;
+            }
+            mergeTimes = new long[Math.max(1, Math.min(n - 1, 1024))];
+        }
+
+        /**
+         * Record a friendship, appending q's list to p's list if it merges two groups.
+         * @return true if everybody is connected
+         */
+        private boolean connect(long timestamp, int p, int q) {
+            int i = unionFind.find(p);
+            int j = unionFind.find(q);
+            if (i != j) {
+                if (merges == mergeTimes.length) {
+                    mergeTimes = Arrays.copyOf(mergeTimes, merges * 2);
+                }
+                mergeTimes[merges] = timestamp;
+
+                next[tails[i]] = heads[j];
+                separatorAfter[tails[i]] = merges;
+                int head = heads[i], tail = tails[j];
+                int root = unionFind.union(i, j);
+                heads[root] = head;
+                tails[root] = tail;
+                merges++;
+            }
+
+            return unionFind.count() == 1;
+        }
+
+        private EarliestConnectionIndex finish() {
+            int n = unionFind.size();
+            int[] positions = new int[n];
+            int[] separators = new int[Math.max(0, n - 1)];
+
+            int position = 0;
+            for (int root = 0; root < n; root++) {
+                if (unionFind.find(root) != root) continue;
+
+                // One list per group, groups separated by NOT_MERGED
+                if (position > 0) separators[position - 1] = NOT_MERGED;
+                for (int p = heads[root]; p >= 0; p = next[p]) {
+                    positions[p] = position;
+                    if (next[p] >= 0) separators[position] = separatorAfter[p];
+                    position++;
+                }
+            }
+
+            return new EarliestConnectionIndex(Arrays.copyOf(mergeTimes, merges),
+                                               positions, separators);
+        }
+    }
+
+    /**
+     * Build the index of n people from friendships sorted by timestamp.
+     *
+     * @param n          Number of people
+     * @param timestamps Timestamps of the friendships, non-decreasing
+     * @param first      First person of each friendship
+     * @param second     Second person of each friendship
+     * @return Index of the friendships
+     */
+    public static EarliestConnectionIndex fromFriendships(int n, long[] timestamps, int[] first,
+                                                          int[] second) {
+        if (n <= 0 || timestamps.length != first.length || first.length != second.length)
+            throw new IllegalArgumentException();
+
+        Construction construction = new Construction(n);
+        for (int k = 0; k < timestamps.length; k++) {
+            if (k > 0 && timestamps[k] < timestamps[k - 1])
+                throw new IllegalArgumentException("Friendships are not sorted by timestamp");
+            if (construction.connect(timestamps[k], first[k], second[k])) break;
+        }
+
+        return construction.finish();
+    }
+
+    /**
+     * Build the index of n people from a sorted text log. Reading stops as soon as everybody
+     * is connected.
+     *
+     * @param filename Log file, one <TIMESTAMP> <ID_PERSON1> <ID_PERSON2> line per friendship
+     * @param n        Number of people
+     * @return Index of the log
+     * @throws IOException              if the log cannot be read
+     * @throws IllegalArgumentException if a line is malformed, out of order or has an ID out of
+     *                                  range
+     */
+    public static EarliestConnectionIndex fromLog(String filename, int n) throws IOException {
+        if (n <= 0) throw new IllegalArgumentException();
+
+        Construction construction = new Construction(n);
+        try (BinaryFriendshipLog.TextReader input = new BinaryFriendshipLog.TextReader(filename)) {
+            long[] fields = new long[3];
+            long previous = Long.MIN_VALUE;
+            int fieldCount;
+            while ((fieldCount = input.readLine(fields)) >= 0) {
+                if (fieldCount == 0) continue;
+                if (fieldCount != 3) throw new IllegalArgumentException("Malformed line in " + filename);
+                if (fields[0] < previous)
+                    throw new IllegalArgumentException(filename + " is not sorted by timestamp");
+                previous = fields[0];
+
+                if (fields[1] < 0 || fields[1] >= n || fields[2] < 0 || fields[2] >= n)
+                    throw new IllegalArgumentException("ID not between 0 and " + (n - 1) + " in " + filename);
+                if (construction.connect(fields[0], (int) fields[1], (int) fields[2])) break;
+            }
+        }
+
+        return construction.finish();
+    }
+
+    /**
+     * Return the number of people.
+     * @return Number of people
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * Return the earliest time when p and q were connected, even through others.
+     *
+     * @param p First person
+     * @param q Second person
+     * @return Timestamp of the friendship that connected them, Long.MIN_VALUE if p == q, NEVER if
+     *         the log never connects them
+     */
+    public long earliestConnection(int p, int q) {
+        validate(p);
+        validate(q);
+        if (p == q) return Long.MIN_VALUE;
+
+        int from = Math.min(positions[p], positions[q]);
+        int to = Math.max(positions[p], positions[q]);
+
+        // Latest merge among separators from..to-1, as two overlapping power-of-two ranges
+        int level = 31 - Integer.numberOfLeadingZeros(to - from);
+        int merge = Math.max(maxMerge[level][from], maxMerge[level][to - (1 << level)]);
+
+        return merge == NOT_MERGED ? NEVER : mergeTimes[merge];
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= positions.length)
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (positions.length - 1));
+    }
+
+    /**
+     * Save the index to a file, to be reloaded by load() without replaying the log. The file
+     * holds a header (magic, people, merges), the merge times, the positions and the merges
+     * separating adjacent people; the sparse table is rebuilt on load.
+     *
+     * @param filename File to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String filename) throws IOException {
+        int n = positions.length;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(n).putInt(mergeTimes.length).putInt(0);
+            for (long mergeTime : mergeTimes) {
+                if (buffer.remaining() < 8) writeFully(buffer, channel);
+                buffer.putLong(mergeTime);
+            }
+            for (int position : positions) {
+                if (buffer.remaining() < 4) writeFully(buffer, channel);
+                buffer.putInt(position);
+            }
+            for (int separator : maxMerge[0]) {
+                if (buffer.remaining() < 4) writeFully(buffer, channel);
+                buffer.putInt(separator);
+            }
+            writeFully(buffer, channel);
+        }
+    }
+
+    private static void writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Load an index written by save().
+     *
+     * @param filename File written by save()
+     * @return Loaded index
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file does not hold a consistent index
+     */
+    public static EarliestConnectionIndex load(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException(filename + " is not an earliest connection index");
+
+            int n = buffer.getInt();
+            int merges = buffer.getInt();
+            buffer.getInt();
+            if (n <= 0 || merges < 0 || merges >= n
+                    || buffer.remaining() != 8L * merges + 4L * n + 4L * (n - 1))
+                throw new IllegalArgumentException(filename + " does not match the size in its header");
+
+            long[] mergeTimes = new long[merges];
+            buffer.asLongBuffer().get(mergeTimes);
+            buffer.position(buffer.position() + 8 * merges);
+            int[] positions = new int[n];
+            buffer.asIntBuffer().get(positions);
+            buffer.position(buffer.position() + 4 * n);
+            int[] separators = new int[n - 1];
+            buffer.asIntBuffer().get(separators);
+
+            // Queries index by position and merge, so a corrupt file must not get past here
+            boolean[] taken = new boolean[n];
+            for (int position : positions) {
+                if (position < 0 || position >= n || taken[position])
+                    throw new IllegalArgumentException(filename + " holds invalid positions");
+                taken[position] = true;
+            }
+            for (int separator : separators) {
+                if ((separator < 0 || separator >= merges) && separator != NOT_MERGED)
+                    throw new IllegalArgumentException(filename + " holds invalid merges");
+            }
+
+            return new EarliestConnectionIndex(mergeTimes, positions, separators);
+        }
+    }
+
+    /**
+     * Test client: indexes a sorted log, saves and reloads the index, then answers random pair
+     * queries.
+     *
+     * @param args Proper Usage is: EarliestConnectionIndex <LOG_FILE> <ARRAY_SIZE> <QUERIES>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 3) {
+            System.out.println("Proper Usage is: EarliestConnectionIndex <LOG_FILE> <ARRAY_SIZE> <QUERIES>");
+        }
+        else {
+            final String filename = args[0];
+            final int arraySize = Integer.parseInt(args[1]);
+            final int queries = Integer.parseInt(args[2]);
+
+            try {
+                Stopwatch stopwatch = new Stopwatch();
+                EarliestConnectionIndex index = fromLog(filename, arraySize);
+                System.out.println("build elapsed time: " + stopwatch.elapsedTime());
+
+                index.save(filename + ".idx");
+                stopwatch = new Stopwatch();
+                index = load(filename + ".idx");
+                System.out.println("load elapsed time: " + stopwatch.elapsedTime());
+
+                stopwatch = new Stopwatch();
+                int never = 0;
+                long latest = Long.MIN_VALUE;
+                for (int k = 0; k < queries; k++) {
+                    long time = index.earliestConnection(StdRandom.uniform(arraySize),
+                                                         StdRandom.uniform(arraySize));
+                    if (time == NEVER) never++;
+                    else latest = Math.max(latest, time);
+                }
+                System.out.println(queries + " queries elapsed time: " + stopwatch.elapsedTime());
+                System.out.println("never connected pairs: " + never + ", latest connection: " + latest);
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ExternalFriendshipSort class reads a text friendship log whose lines are not in timestamp
+ * order, and possibly larger than memory, back in timestamp order. The log is read in chunks of
+ * chunkRecords friendships; each chunk is sorted in memory and spilled to a temporary file of
+ * binary records (see BinaryFriendshipLog). The chunks are then merged on the fly by next(),
+ * through a heap of buffered chunk readers, so no fully sorted copy of the log is ever written.
+ * At most MERGE_WAYS chunks are merged at once, each holding a 1 MB direct buffer and a file
+ * descriptor: with more chunks, consecutive groups of MERGE_WAYS are first merged into longer
+ * chunks, in as many passes as needed. Friendships with the same timestamp keep their order in
+ * the log.
+ *
+ * A log that fits in a single chunk is never spilled.
+ *
+ * @author Alessio Vallero
+ */
+public class ExternalFriendshipSort implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int RECORD_BYTES = BinaryFriendshipLog.RECORD_BYTES;
+    private static final int MERGE_WAYS = 64;
+
+    // Sorted chunk kept in memory when the whole log fits in one, and the scratch of its sort
+    private long[] timestamps;
+    private long[] friends;    // first ID in the high 32 bits, second ID in the low ones
+    private long[] sortTimestamps;
+    private long[] sortFriends;
+    private int inMemoryCount;
+    private int inMemoryNext;
+
+    // Chunk files not deleted yet, and the number of chunks spilled from the log
+    private final List<File> chunkFiles = new ArrayList<>();
+    private int spilledChunks;
+
+    // Chunks being merged and the heap of their indexes, ordered by current timestamp then index
+    private FileChannel[] chunkChannels;
+    private ByteBuffer[] chunkBuffers;
+    private long[] chunkTimestamps;
+    private long[] chunkFriends;
+    private int[] heap;
+    private int heapSize;
+
+    // Current friendship
+    private long timestamp;
+    private long currentFriends;
+
+    /**
+     * Read and sort filename in chunks.
+     *
+     * @param filename     Text log, one <TIMESTAMP> <ID_PERSON1> <ID_PERSON2> line per friendship
+     * @param chunkRecords Friendships sorted in memory at a time; 32 bytes of heap each
+     * @param directory    Directory of the chunk files, null for the default temporary directory
+     * @throws IOException if the log cannot be read or a chunk cannot be spilled
+     */
+    public ExternalFriendshipSort(String filename, int chunkRecords, File directory)
+            throws IOException {
+        if (chunkRecords <= 0) throw new IllegalArgumentException();
+
+        timestamps = new long[chunkRecords];
+        friends = new long[chunkRecords];
+        sortTimestamps = new long[chunkRecords];
+        sortFriends = new long[chunkRecords];
+        try (BinaryFriendshipLog.TextReader input = new BinaryFriendshipLog.TextReader(filename)) {
+            long[] fields = new long[3];
+            long line = 0;
+            int fieldCount;
+            while ((fieldCount = input.readLine(fields)) >= 0) {
+                line++;
+                if (fieldCount == 0) continue;
+                if (fieldCount != 3 || fields[1] != (int) fields[1] || fields[2] != (int) fields[2])
+                    throw new IllegalArgumentException("Malformed line " + line + " of " + filename);
+
+                if (inMemoryCount == chunkRecords) spill(directory);
+                timestamps[inMemoryCount] = fields[0];
+                friends[inMemoryCount] = (fields[1] << 32) | (fields[2] & 0xffffffffL);
+                inMemoryCount++;
+            }
+
+            if (spilledChunks == 0) {
+                sort(timestamps, friends, sortTimestamps, sortFriends, inMemoryCount);
+                sortTimestamps = null;
+                sortFriends = null;
+            }
+            else {
+                if (inMemoryCount > 0) spill(directory);
+                mergeChunks(directory);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sort the in-memory chunk and write it to a new temporary file.
+     */
+    private void spill(File directory) throws IOException {
+        sort(timestamps, friends, sortTimestamps, sortFriends, inMemoryCount);
+
+        File chunkFile = newChunkFile(directory);
+        spilledChunks++;
+
+        try (FileChannel channel = FileChannel.open(chunkFile.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int k = 0; k < inMemoryCount; k++) {
+                if (buffer.remaining() < RECORD_BYTES) writeFully(buffer, channel);
+                buffer.putLong(timestamps[k]).putInt((int) (friends[k] >> 32)).putInt((int) friends[k]);
+            }
+            writeFully(buffer, channel);
+        }
+
+        inMemoryCount = 0;
+    }
+
+    private File newChunkFile(File directory) throws IOException {
+        File chunkFile = File.createTempFile("friendship-chunk", ".bin", directory);
+        chunkFile.deleteOnExit();
+        chunkFiles.add(chunkFile);
+        return chunkFile;
+    }
+
+    private static void writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Stable bottom-up merge sort of the first count friendships by timestamp, moving the
+     * friends along, through scratch arrays at least as long.
+     */
+    private static void sort(long[] timestamps, long[] friends, long[] scratchTimestamps,
+                             long[] scratchFriends, int count) {
+        long[] fromTimestamps = timestamps, fromFriends = friends;
+        long[] toTimestamps = scratchTimestamps, toFriends = scratchFriends;
+
+        for (int width = 1; width < count; width *= 2) {
+            for (int lo = 0; lo < count; lo += 2 * width) {
+                int mid = Math.min(lo + width, count);
+                int hi = Math.min(lo + 2 * width, count);
+                int i = lo, j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j >= hi || (i < mid && fromTimestamps[i] <= fromTimestamps[j])) {
+                        toTimestamps[k] = fromTimestamps[i];
+                        toFriends[k] = fromFriends[i++];
+                    }
+                    else {
+                        toTimestamps[k] = fromTimestamps[j];
+                        toFriends[k] = fromFriends[j++];
+                    }
+                }
+            }
+
+            long[] swap = fromTimestamps;
+            fromTimestamps = toTimestamps;
+            toTimestamps = swap;
+            swap = fromFriends;
+            fromFriends = toFriends;
+            toFriends = swap;
+        }
+
+        if (fromTimestamps != timestamps) {
+            System.arraycopy(fromTimestamps, 0, timestamps, 0, count);
+            System.arraycopy(fromFriends, 0, friends, 0, count);
+        }
+    }
+
+    /**
+     * Release the in-memory chunk and merge the spilled chunks, MERGE_WAYS at a time, until
+     * they can all be opened for the final merge done by next().
+     */
+    private void mergeChunks(File directory) throws IOException {
+        timestamps = null;
+        friends = null;
+        sortTimestamps = null;
+        sortFriends = null;
+
+        List<File> runs = new ArrayList<>(chunkFiles);
+        int ways = Math.min(runs.size(), MERGE_WAYS);
+        chunkChannels = new FileChannel[ways];
+        chunkBuffers = new ByteBuffer[ways];
+        for (int c = 0; c < ways; c++) {
+            chunkBuffers[c] = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        chunkTimestamps = new long[ways];
+        chunkFriends = new long[ways];
+        heap = new int[ways];
+
+        ByteBuffer output = null;
+        while (runs.size() > MERGE_WAYS) {
+            if (output == null) {
+                output = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            // Consecutive groups keep equal timestamps in log order
+            List<File> mergedRuns = new ArrayList<>();
+            for (int from = 0; from < runs.size(); from += MERGE_WAYS) {
+                List<File> group = runs.subList(from, Math.min(from + MERGE_WAYS, runs.size()));
+                if (group.size() == 1) {
+                    mergedRuns.add(group.get(0));
+                    continue;
+                }
+
+                File merged = newChunkFile(directory);
+                mergedRuns.add(merged);
+                openChunks(group);
+                try (FileChannel channel = FileChannel.open(merged.toPath(), StandardOpenOption.WRITE)) {
+                    while (nextInChunks()) {
+                        if (output.remaining() < RECORD_BYTES) writeFully(output, channel);
+                        output.putLong(timestamp).putInt(first()).putInt(second());
+                    }
+                    writeFully(output, channel);
+                }
+                closeChunks();
+
+                for (File chunkFile : group) {
+                    chunkFile.delete();
+                    chunkFiles.remove(chunkFile);
+                }
+            }
+            runs = mergedRuns;
+        }
+
+        openChunks(runs);
+    }
+
+    /**
+     * Open a buffered reader on each of chunks, at most MERGE_WAYS, and fill the heap.
+     */
+    private void openChunks(List<File> chunks) throws IOException {
+        heapSize = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            chunkChannels[c] = FileChannel.open(chunks.get(c).toPath(), StandardOpenOption.READ);
+            chunkBuffers[c].clear().limit(0);
+            if (advance(c)) {
+                heap[heapSize] = c;
+                siftUp(heapSize++);
+            }
+        }
+    }
+
+    private void closeChunks() throws IOException {
+        for (int c = 0; c < chunkChannels.length; c++) {
+            if (chunkChannels[c] != null) {
+                chunkChannels[c].close();
+                chunkChannels[c] = null;
+            }
+        }
+    }
+
+    /**
+     * Read the next record of chunk c into chunkTimestamps[c] and chunkFriends[c].
+     * @return false if chunk c is exhausted
+     */
+    private boolean advance(int c) throws IOException {
+        ByteBuffer buffer = chunkBuffers[c];
+        if (buffer.remaining() < RECORD_BYTES) {
+            buffer.compact();
+            while (buffer.position() < RECORD_BYTES && chunkChannels[c].read(buffer) >= 0) { }
+            buffer.flip();
+            if (buffer.remaining() < RECORD_BYTES) return false;
+        }
+
+        chunkTimestamps[c] = buffer.getLong();
+        chunkFriends[c] = ((long) buffer.getInt() << 32) | (buffer.getInt() & 0xffffffffL);
+        return true;
+    }
+
+    /**
+     * Does chunk a come before chunk b in the merge?
+     */
+    private boolean less(int a, int b) {
+        return chunkTimestamps[a] < chunkTimestamps[b]
+                || (chunkTimestamps[a] == chunkTimestamps[b] && a < b);
+    }
+
+    private void siftUp(int k) {
+        while (k > 0 && less(heap[k], heap[(k - 1) / 2])) {
+            int swap = heap[k];
+            heap[k] = heap[(k - 1) / 2];
+            heap[(k - 1) / 2] = swap;
+            k = (k - 1) / 2;
+        }
+    }
+
+    private void siftDown(int k) {
+        while (2 * k + 1 < heapSize) {
+            int child = 2 * k + 1;
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], heap[k])) break;
+
+            int swap = heap[k];
+            heap[k] = heap[child];
+            heap[child] = swap;
+            k = child;
+        }
+    }
+
+    /**
+     * Move to the next friendship in timestamp order.
+     *
+     * @return false if there are no more friendships
+     * @throws IOException if a chunk cannot be read
+     */
+    public boolean next() throws IOException {
+        if (chunkChannels == null) {
+            if (inMemoryNext == inMemoryCount) return false;
+
+            timestamp = timestamps[inMemoryNext];
+            currentFriends = friends[inMemoryNext];
+            inMemoryNext++;
+            return true;
+        }
+
+        return nextInChunks();
+    }
+
+    /**
+     * Move to the next friendship of the chunks being merged.
+     *
+     * @return false if the chunks are exhausted
+     */
+    private boolean nextInChunks() throws IOException {
+        if (heapSize == 0) return false;
+
+        int c = heap[0];
+        timestamp = chunkTimestamps[c];
+        currentFriends = chunkFriends[c];
+        if (!advance(c)) heap[0] = heap[--heapSize];
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Timestamp of the current friendship
+     *
+     * @return Timestamp
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * First person of the current friendship
+     *
+     * @return ID of the first person
+     */
+    public int first() {
+        return (int) (currentFriends >> 32);
+    }
+
+    /**
+     * Second person of the current friendship
+     *
+     * @return ID of the second person
+     */
+    public int second() {
+        return (int) currentFriends;
+    }
+
+    /**
+     * Number of chunks spilled to disk, 0 if the log fit in memory
+     *
+     * @return Number of chunk files
+     */
+    public int spilledChunks() {
+        return spilledChunks;
+    }
+
+    /**
+     * Close and delete the chunk files.
+     *
+     * @throws IOException if a chunk file cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (int c = 0; chunkChannels != null && c < chunkChannels.length; c++) {
+            try {
+                if (chunkChannels[c] != null) chunkChannels[c].close();
+            } catch (IOException e) {
+                failure = e;
+            }
+            chunkChannels[c] = null;
+        }
+        for (File chunkFile : chunkFiles) {
+            if (!chunkFile.delete() && chunkFile.exists()) {
+                failure = new IOException("Cannot delete " + chunkFile);
+            }
+        }
+        chunkFiles.clear();
+        heapSize = 0;
+
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Test client: finds the earliest complete connection of an unsorted log.
+     *
+     * @param args Proper Usage is: ExternalFriendshipSort <LOG_FILE> <ARRAY_SIZE> <CHUNK_RECORDS>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 3) {
+            System.out.println("Proper Usage is: ExternalFriendshipSort <LOG_FILE> <ARRAY_SIZE> <CHUNK_RECORDS>");
+        }
+        else {
+            final String filename = args[0];
+            final int arraySize = Integer.parseInt(args[1]);
+            final int chunkRecords = Integer.parseInt(args[2]);
+
+            Stopwatch stopwatch = new Stopwatch();
+            String earliestCompleteConnection = new SocialNetworkConnectivity(arraySize)
+                    .earliestCompleteConnectionUnsorted(filename, chunkRecords, null);
+            if (earliestCompleteConnection.isEmpty()) {
+                System.out.println("No complete connection detected in file " + filename);
+            }
+            else {
+                System.out.println("Earliest complete friendships time: " + earliestCompleteConnection);
+            }
+            System.out.println("elapsed time: " + stopwatch.elapsedTime());
+        }
+    }
+}
@@ -0,0 +1,360 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The FriendshipLogGenerator class writes random friendship logs, one
+ * <TIMESTAMP> <ID_PERSON1> <ID_PERSON2> line per friendship, timestamps one second apart. Every
+ * friendship is between two different people and no pair appears twice. Pairs are deduplicated
+ * by an open-addressing set of primitive long keys, (smaller ID << 32 | larger ID), and lines
+ * are formatted straight into large byte buffers written through a FileChannel.
+ *
+ * Pairs are numbered by smaller ID, then larger ID, and split in partitions of consecutive
+ * smaller IDs holding about the same number of pairs. Each partition gets its share of the
+ * friendships, proportional to its pairs, and only draws pair numbers of its own, so partitions
+ * are drawn and deduplicated in parallel with no wasted draws and no sharing. The log is then
+ * written in as many segments, in parallel into temporary files appended in order: each segment
+ * takes the same slice of every partition's pairs, shuffled, so friendships among low and high
+ * IDs are spread evenly over time. All the pairs are held in memory, 8 bytes each, plus the sets
+ * of the partitions while they are drawn. The log only depends on the seed and the number of
+ * partitions.
+ *
+ * @author Alessio Vallero
+ */
+public class FriendshipLogGenerator {
+    private static final long FIRST_TIMESTAMP = 1577548293575L;
+    private static final int BUFFER_BYTES = 1 << 22;
+    private static final int MAX_LINE_BYTES = 3 * 20 + 3;
+
+    private FriendshipLogGenerator() { }
+
+    /**
+     * Open-addressing set of pair keys. 0 is the pair (0, 0), never generated, so it marks empty
+     * slots.
+     */
+    private static class PairSet {
+        private final long[] keys;
+        private final int mask;
+
+        private PairSet(long expected) {
+            // At most 3/4 full
+            long capacity = Long.highestOneBit(Math.max(16, expected * 4 / 3)) << 1;
+            if (capacity > 1 << 30) throw new IllegalArgumentException("Too many friendships");
+
+            keys = new long[(int) capacity];
+            mask = (int) capacity - 1;
+        }
+
+        /**
+         * Add key.
+         * @return false if key was already in the set
+         */
+        private boolean add(long key) {
+            for (int h = (int) mix(key) & mask; ; h = (h + 1) & mask) {
+                if (keys[h] == key) return false;
+                if (keys[h] == 0) {
+                    keys[h] = key;
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of key (MurmurHash3 finalizer).
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Number of pairs whose smaller ID is below person, among n people.
+     */
+    private static long pairsBefore(int n, int person) {
+        return (long) person * (2L * n - 1 - person) / 2;
+    }
+
+    /**
+     * Smaller ID of pair number pair, i.e. the largest person with pairsBefore(n, person) <= pair.
+     */
+    private static int personOfPair(int n, long pair) {
+        // Root of the quadratic pairsBefore(n, person) = pair, fixed up for rounding
+        double b = 2.0 * n - 1;
+        int person = (int) Math.max(0, Math.min(n - 1, (b - Math.sqrt(b * b - 8.0 * pair)) / 2));
+        while (person > 0 && pairsBefore(n, person) > pair) person--;
+        while (person < n - 1 && pairsBefore(n, person + 1) <= pair) person++;
+        return person;
+    }
+
+    /**
+     * Write a log of friendships among n people.
+     *
+     * @param filename   Log file to write, replaced if it exists
+     * @param n          Number of people, at least 2
+     * @param edges      Number of friendships, at most n * (n - 1) / 2
+     * @param seed       Seed of the random friendships
+     * @param partitions Number of partitions drawn and written in parallel, 1 to generate
+     *                   sequentially
+     * @param sparseIds  Scatter the IDs over the whole long range instead of 0..n-1 (see
+     *                   SocialNetworkConnectivity.withSparseIds())
+     * @throws IOException if the log cannot be written
+     */
+    public static void generate(String filename, int n, long edges, long seed, int partitions,
+                                boolean sparseIds) throws IOException {
+        if (n < 2 || edges < 0 || edges > (long) n * (n - 1) / 2 || partitions < 1)
+            throw new IllegalArgumentException();
+
+        // Partition p owns the smaller IDs from firstPerson[p] and the friendships from
+        // firstEdge[p], its share of edges rounded down exactly so it never exceeds its pairs
+        long pairs = (long) n * (n - 1) / 2;
+        int[] firstPerson = new int[partitions + 1];
+        long[] firstEdge = new long[partitions + 1];
+        for (int p = 0; p <= partitions; p++) {
+            firstPerson[p] = personOfPair(n, (long) ((double) pairs * p / partitions));
+            firstEdge[p] = BigInteger.valueOf(edges)
+                                     .multiply(BigInteger.valueOf(pairsBefore(n, firstPerson[p])))
+                                     .divide(BigInteger.valueOf(pairs))
+                                     .longValueExact();
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        SplittableRandom[] partitionRandoms = new SplittableRandom[partitions];
+        SplittableRandom[] segmentRandoms = new SplittableRandom[partitions];
+        for (int p = 0; p < partitions; p++) {
+            partitionRandoms[p] = random.split();
+            segmentRandoms[p] = random.split();
+        }
+
+        long[][] partitionPairs = new long[partitions][];
+        File[] segmentFiles = new File[partitions];
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(partitions, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> futures = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) {
+                final int partition = p;
+                futures.add(executor.submit(() -> {
+                    partitionPairs[partition] = drawPairs(
+                            partitionRandoms[partition], n, firstPerson[partition],
+                            firstPerson[partition + 1],
+                            firstEdge[partition + 1] - firstEdge[partition]);
+                    return null;
+                }));
+            }
+            waitFor(futures);
+
+            if (partitions == 1) {
+                try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                                                            StandardOpenOption.CREATE,
+                                                            StandardOpenOption.WRITE,
+                                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                    writeSegment(channel, partitionPairs, 0, 1, segmentRandoms[0], sparseIds);
+                }
+                return;
+            }
+
+            File directory = new File(filename).getAbsoluteFile().getParentFile();
+            futures.clear();
+            for (int s = 0; s < partitions; s++) {
+                final int segment = s;
+                segmentFiles[s] = File.createTempFile("friendship-segment", ".txt", directory);
+                segmentFiles[s].deleteOnExit();
+                final File segmentFile = segmentFiles[s];
+                futures.add(executor.submit(() -> {
+                    try (FileChannel channel = FileChannel.open(segmentFile.toPath(),
+                                                                StandardOpenOption.WRITE)) {
+                        writeSegment(channel, partitionPairs, segment, partitions,
+                                     segmentRandoms[segment], sparseIds);
+                    }
+                    return null;
+                }));
+            }
+            waitFor(futures);
+
+            try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                                                        StandardOpenOption.CREATE,
+                                                        StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (File segmentFile : segmentFiles) {
+                    try (FileChannel segmentChannel = FileChannel.open(segmentFile.toPath(),
+                                                                       StandardOpenOption.READ)) {
+                        long size = segmentChannel.size();
+                        for (long position = 0; position < size; ) {
+                            position += segmentChannel.transferTo(position, size - position, channel);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating " + filename, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof IllegalArgumentException)
+                throw (IllegalArgumentException) e.getCause();
+            throw new IllegalStateException("A partition failed", e.getCause());
+        } finally {
+            executor.shutdown();
+            for (File segmentFile : segmentFiles) {
+                if (segmentFile != null) segmentFile.delete();
+            }
+        }
+    }
+
+    private static void waitFor(List<Future<?>> futures)
+            throws InterruptedException, ExecutionException {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * Draw count distinct pairs whose smaller ID is from firstPerson (inclusive) to lastPerson
+     * (exclusive), as keys in the order they were drawn. Only pair numbers of the range are
+     * drawn, so the only draws thrown away are repeated pairs.
+     */
+    private static long[] drawPairs(SplittableRandom random, int n, int firstPerson,
+                                    int lastPerson, long count) {
+        PairSet pairs = new PairSet(count);
+        long[] keys = new long[(int) count];
+        long firstPair = pairsBefore(n, firstPerson), lastPair = pairsBefore(n, lastPerson);
+
+        for (int k = 0; k < keys.length; k++) {
+            long key;
+            do {
+                long pair = random.nextLong(firstPair, lastPair);
+                int person1 = personOfPair(n, pair);
+                int person2 = person1 + 1 + (int) (pair - pairsBefore(n, person1));
+                key = ((long) person1 << 32) | person2;
+            }
+            while (!pairs.add(key));
+            keys[k] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Write segment segment of segments: the same slice of every partition's pairs, shuffled,
+     * timestamped after the friendships of the previous segments. Which of the two people comes
+     * first on a line is random.
+     */
+    private static void writeSegment(FileChannel channel, long[][] partitionPairs, int segment,
+                                     int segments, SplittableRandom random, boolean sparseIds)
+            throws IOException {
+        long first = 0;
+        int size = 0;
+        for (long[] pairs : partitionPairs) {
+            first += (long) pairs.length * segment / segments;
+            size += (int) ((long) pairs.length * (segment + 1) / segments
+                    - (long) pairs.length * segment / segments);
+        }
+
+        long[] keys = new long[size];
+        int length = 0;
+        for (long[] pairs : partitionPairs) {
+            int from = (int) ((long) pairs.length * segment / segments);
+            int to = (int) ((long) pairs.length * (segment + 1) / segments);
+            System.arraycopy(pairs, from, keys, length, to - from);
+            length += to - from;
+        }
+        // Fisher-Yates shuffle mixing the partitions; a single partition is in random order already
+        if (partitionPairs.length > 1) {
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                long swap = keys[i];
+                keys[i] = keys[j];
+                keys[j] = swap;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        byte[] digits = new byte[20];
+        for (int k = 0; k < size; k++) {
+            int person1 = (int) (keys[k] >>> 32), person2 = (int) keys[k];
+            if (random.nextBoolean()) {
+                int swap = person1;
+                person1 = person2;
+                person2 = swap;
+            }
+
+            if (buffer.remaining() < MAX_LINE_BYTES) writeFully(buffer, channel);
+            putDecimal(buffer, FIRST_TIMESTAMP + (first + k + 1) * 1000, digits);
+            buffer.put((byte) ' ');
+            putDecimal(buffer, sparseIds ? person1 * 0x9E3779B97F4A7C15L : person1, digits);
+            buffer.put((byte) ' ');
+            putDecimal(buffer, sparseIds ? person2 * 0x9E3779B97F4A7C15L : person2, digits);
+            buffer.put((byte) '\n');
+        }
+        writeFully(buffer, channel);
+    }
+
+    /**
+     * Put the decimal digits of value in buffer, using digits as scratch space.
+     */
+    private static void putDecimal(ByteBuffer buffer, long value, byte[] digits) {
+        if (value < 0) buffer.put((byte) '-');
+
+        // Digits of the negative value, so that Long.MIN_VALUE works too
+        long rest = value < 0 ? value : -value;
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' - rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+
+        while (length > 0) buffer.put(digits[--length]);
+    }
+
+    private static void writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Test client: writes a random log.
+     *
+     * @param args Proper Usage is: FriendshipLogGenerator <LOG_FILE> <ARRAY_SIZE> <EDGES> [SEED] [PARTITIONS] [SPARSE_IDS]
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 3) {
+            System.out.println("Proper Usage is: FriendshipLogGenerator <LOG_FILE> <ARRAY_SIZE> <EDGES> [SEED] [PARTITIONS] [SPARSE_IDS]");
+        }
+        else {
+            final String filename = args[0];
+            final int arraySize = Integer.parseInt(args[1]);
+            final long edges = Long.parseLong(args[2]);
+            final long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+            final int partitions = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+            final boolean sparseIds = args.length > 5 && Boolean.parseBoolean(args[5]);
+
+            Stopwatch stopwatch = new Stopwatch();
+            try {
+                generate(filename, arraySize, edges, seed, partitions, sparseIds);
+                System.out.println(edges + " friendships written in " + stopwatch.elapsedTime());
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -1,12 +1,13 @@
 import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.Stopwatch;
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
 
-import javax.rmi.ssl.SslRMIClientSocketFactory;
 import java.io.*;
-import java.util.HashSet;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
-import java.util.Set;
 
 /**
  * The SocialNetworkConnectivity class model.
@@ -14,7 +15,27 @@ import java.util.Set;
  * @author Alessio Vallero
  */
 public class SocialNetworkConnectivity {
-    private final WeightedQuickUnionUF weightedQuickUnionTimestamps;
+    private static final long MAPPED_WINDOW = 1L << 28;     // 256MB of log mapped at a time
+    private static final long PROGRESS_INTERVAL = 1L << 24; // report progress every 16MB
+
+    /**
+     * Receives the progress of a long scan of a log.
+     */
+    public interface ProgressListener {
+        /**
+         * Called every few megabytes of log, and once at the end of the scan.
+         *
+         * @param bytesRead  Bytes of the log scanned so far
+         * @param totalBytes Size of the log
+         */
+        void progress(long bytesRead, long totalBytes);
+    }
+
+    private final UnionFind unionFindTimestamps;
+
+    // Sparse IDs mode: people are added as they appear in the log, until targetPopulation
+    private final LongKeyedUnionFind sparseUnionFind;
+    private final int targetPopulation;
 
     /**
      * Creates an n-sized array from file, each element representing a person
@@ -22,7 +43,70 @@ public class SocialNetworkConnectivity {
      *  @param n Size of the array
      */
     public SocialNetworkConnectivity(int n) {
-        weightedQuickUnionTimestamps = new WeightedQuickUnionUF(n);
+        this(n, UnionFindStrategy.PATH_HALVING);
+    }
+
+    /**
+     * Creates an n-sized array from file, each element representing a person, using the given
+     * union-find implementation
+     *
+     *  @param n        Size of the array
+     *  @param strategy Union-find implementation
+     */
+    public SocialNetworkConnectivity(int n, UnionFindStrategy strategy) {
+        if (strategy == null) throw new IllegalArgumentException();
+
+        unionFindTimestamps = strategy.create(n);
+        sparseUnionFind = null;
+        targetPopulation = n;
+    }
+
+    /**
+     * Creates an empty network whose people are identified by arbitrary long IDs, e.g. account
+     * numbers, instead of 0..n-1. People are added the first time they appear in the log.
+     *
+     *  @param sparseUnionFind  Empty union-find keyed by ID
+     *  @param targetPopulation Number of people that must all be connected
+     */
+    private SocialNetworkConnectivity(LongKeyedUnionFind sparseUnionFind, int targetPopulation) {
+        this.unionFindTimestamps = null;
+        this.sparseUnionFind = sparseUnionFind;
+        this.targetPopulation = targetPopulation;
+    }
+
+    /**
+     * Creates a network of targetPopulation people identified by arbitrary long IDs, sized on
+     * demand as the log reveals them.
+     *
+     *  @param targetPopulation Number of people that must all be connected
+     *  @return Network with no people yet
+     */
+    public static SocialNetworkConnectivity withSparseIds(int targetPopulation) {
+        if (targetPopulation <= 0) throw new IllegalArgumentException();
+
+        return new SocialNetworkConnectivity(new LongKeyedUnionFind(targetPopulation), targetPopulation);
+    }
+
+    /**
+     * Connect two people from a line of the log.
+     * @param first  ID of the first person
+     * @param second ID of the second person
+     * @return true if everybody is connected, false otherwise
+     */
+    private boolean connectFriends(long first, long second) {
+        if (sparseUnionFind == null) {
+            if (first != (int) first || second != (int) second)
+                throw new IllegalArgumentException("ID out of range: " + first + " " + second);
+
+            unionFindTimestamps.union((int) first, (int) second);
+
+            return unionFindTimestamps.count() == 1;
+        }
+
+        sparseUnionFind.union(first, second);
+
+        // Everybody has shown up and they all belong to a single set
+        return sparseUnionFind.size() == targetPopulation && sparseUnionFind.count() == 1;
     }
 
     /**
@@ -40,9 +124,7 @@ public class SocialNetworkConnectivity {
             while (myReader.hasNextLine()) {
                 String[] lineElements = myReader.nextLine().split(" ");
 
-                weightedQuickUnionTimestamps.union(Integer.parseInt(lineElements[1]), Integer.parseInt(lineElements[2]));
-
-                if (weightedQuickUnionTimestamps.count() == 1) {
+                if (connectFriends(Long.parseLong(lineElements[1]), Long.parseLong(lineElements[2]))) {
                     output = lineElements[0];
 
                     break;
@@ -57,66 +139,220 @@ public class SocialNetworkConnectivity {
         return output;
     }
 
+    /**
+     * Same as earliestCompleteConnection(filename), parsing the log straight from a memory-mapped
+     * view of the file instead of through Scanner and split(): IDs are decoded from the bytes in
+     * place and no object is allocated per line, which matters on logs of hundreds of millions
+     * of lines. The file is mapped in windows of whole lines, so it can exceed 2GB. A log that
+     * cannot be read, or holds a malformed line or a number out of range, is reported like any
+     * other read error and gives the empty string.
+     * @param filename Log file containing timestamps of friendships
+     * @param progress Notified of the scan progress, null for none
+     * @return Earliest time when everybody is connected, empty string otherwise.
+     */
+    public String earliestCompleteConnectionMapped(String filename, ProgressListener progress) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            long nextReport = PROGRESS_INTERVAL;
+
+            while (windowStart < size) {
+                int windowLength = (int) Math.min(MAPPED_WINDOW, size - windowStart);
+                boolean lastWindow = windowStart + windowLength == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                                                      windowLength);
+
+                int lineStart = 0;
+                while (lineStart < windowLength) {
+                    // Find the end of the line and the two separators
+                    int firstSpace = -1, secondSpace = -1;
+                    int lineEnd = lineStart;
+                    while (lineEnd < windowLength) {
+                        byte b = window.get(lineEnd);
+                        if (b == '\n') break;
+                        if (b == ' ') {
+                            if (firstSpace < 0) firstSpace = lineEnd;
+                            else if (secondSpace < 0) secondSpace = lineEnd;
+                        }
+                        lineEnd++;
+                    }
+                    // The line goes on in the next window
+                    if (lineEnd == windowLength && !lastWindow) break;
+
+                    int contentEnd = lineEnd;
+                    if (contentEnd > lineStart && window.get(contentEnd - 1) == '\r') contentEnd--;
+
+                    if (contentEnd > lineStart) {
+                        if (secondSpace < 0 || secondSpace >= contentEnd)
+                            throw new IllegalArgumentException("Malformed line at byte "
+                                                                       + (windowStart + lineStart));
+
+                        long first = parseLong(window, firstSpace + 1, secondSpace);
+                        long second = parseLong(window, secondSpace + 1, contentEnd);
+                        if (connectFriends(first, second)) {
+                            // Only the timestamp of the answer is needed: check it is a number
+                            parseLong(window, lineStart, firstSpace);
+                            byte[] timestamp = new byte[firstSpace - lineStart];
+                            for (int k = 0; k < timestamp.length; k++) {
+                                timestamp[k] = window.get(lineStart + k);
+                            }
+                            if (progress != null) progress.progress(windowStart + lineEnd, size);
+
+                            return new String(timestamp, StandardCharsets.US_ASCII);
+                        }
+                    }
+
+                    lineStart = lineEnd + 1;
+                    if (progress != null && windowStart + lineStart >= nextReport) {
+                        progress.progress(Math.min(windowStart + lineStart, size), size);
+                        nextReport += PROGRESS_INTERVAL;
+                    }
+                }
+
+                if (lineStart == 0)
+                    throw new IllegalArgumentException("Line longer than " + MAPPED_WINDOW + " bytes");
+                windowStart += lineStart;
+            }
+
+            if (progress != null) progress.progress(size, size);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+
+        return "";
+    }
+
+    /**
+     * Same as earliestCompleteConnection(filename), reading a log in the binary format of
+     * BinaryFriendshipLog: the fixed-width records are read from a memory mapping of the file
+     * with no parsing, so the scan runs at disk bandwidth. A log that cannot be read, or holds
+     * IDs out of range, is reported like any other read error and gives the empty string.
+     * @param filename Binary log file containing timestamps of friendships
+     * @return Earliest time when everybody is connected, empty string otherwise.
+     */
+    public String earliestCompleteConnectionBinary(String filename) {
+        try (BinaryFriendshipLog log = new BinaryFriendshipLog(filename)) {
+            if (sparseUnionFind == null && log.recordCount() > 0
+                    && (log.minId() < 0 || log.maxId() >= unionFindTimestamps.size()))
+                throw new IllegalArgumentException("IDs of " + filename + " are not between 0 and "
+                                                           + (unionFindTimestamps.size() - 1));
+
+            final int windowRecords = (int) (MAPPED_WINDOW / BinaryFriendshipLog.RECORD_BYTES);
+            for (long first = 0; first < log.recordCount(); first += windowRecords) {
+                int records = (int) Math.min(windowRecords, log.recordCount() - first);
+                MappedByteBuffer window = log.mapRecords(first, records);
+
+                for (int offset = 0; offset < records * BinaryFriendshipLog.RECORD_BYTES;
+                     offset += BinaryFriendshipLog.RECORD_BYTES) {
+                    if (connectFriends(window.getInt(offset + 8), window.getInt(offset + 12))) {
+                        return Long.toString(window.getLong(offset));
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+
+        return "";
+    }
+
+    /**
+     * Same as earliestCompleteConnection(filename), for a log whose lines are not sorted by
+     * timestamp and may not fit in memory. The log is sorted in chunks spilled to temporary files,
+     * whose merge is fed straight to the union-find: the scan still stops at the first complete
+     * connection, without writing a sorted copy of the log. A log that cannot be read or holds a
+     * malformed line is reported like any other read error and gives the empty string.
+     * @param filename     Log file containing timestamps of friendships, in any order
+     * @param chunkRecords Friendships sorted in memory at a time
+     * @param directory    Directory of the chunk files, null for the default temporary directory
+     * @return Earliest time when everybody is connected, empty string otherwise.
+     */
+    public String earliestCompleteConnectionUnsorted(String filename, int chunkRecords,
+                                                     File directory) {
+        if (chunkRecords <= 0) throw new IllegalArgumentException();
+
+        try (ExternalFriendshipSort sortedLog = new ExternalFriendshipSort(filename, chunkRecords,
+                                                                           directory)) {
+            while (sortedLog.next()) {
+                if (connectFriends(sortedLog.first(), sortedLog.second())) {
+                    return Long.toString(sortedLog.timestamp());
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+
+        return "";
+    }
+
+    /**
+     * Parse the decimal number, optionally negative, held by bytes from (inclusive) to to
+     * (exclusive) of buffer. Throw an IllegalArgumentException if it does not fit in a long.
+     */
+    private static long parseLong(MappedByteBuffer buffer, int from, int to) {
+        boolean negative = from < to && buffer.get(from) == '-';
+        int k = negative ? from + 1 : from;
+        if (k == to) throw new IllegalArgumentException("Missing number");
+
+        long value = 0;
+        for (; k < to; k++) {
+            int digit = buffer.get(k) - '0';
+            if (digit < 0 || digit > 9) throw new IllegalArgumentException("Invalid digit");
+
+            try {
+                value = Math.subtractExact(Math.multiplyExact(value, 10), digit);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Number out of range");
+            }
+        }
+
+        // Accumulated as a negative number, so that Long.MIN_VALUE is parsed too
+        return negative ? value : -value;
+    }
+
     /**
      * Test client
      *
-     * @param args Proper Usage is: SocialNetworkConnectivity <ARRAY_SIZE> <DENSITY> <TRIALS>
+     * @param args Proper Usage is: SocialNetworkConnectivity <ARRAY_SIZE> <DENSITY> <TRIALS> [UNION_FIND_STRATEGY] [SPARSE_IDS]
      */
     public static void main(String[] args) {
         // Check how many arguments were passed in
         if (args.length < 3) {
-            System.out.println("Proper Usage is: SocialNetworkConnectivity <ARRAY_SIZE> <DENSITY> <TRIALS>");
+            System.out.println("Proper Usage is: SocialNetworkConnectivity <ARRAY_SIZE> <DENSITY> <TRIALS> [UNION_FIND_STRATEGY] [SPARSE_IDS]");
         }
         else {
             final int arraySize = Integer.parseInt(args[0]);
             final int densityOfFriendships = Integer.parseInt(args[1]);
             final int trials = Integer.parseInt(args[2]);
+            final UnionFindStrategy strategy = args.length > 3 ? UnionFindStrategy.valueOf(args[3])
+                                                               : UnionFindStrategy.PATH_HALVING;
+            final boolean sparseIds = args.length > 4 && Boolean.parseBoolean(args[4]);
             final String filename = "social.txt";
 
             Stopwatch stopwatch = new Stopwatch();
 
             // For each trial, we create a new array and create a file containing frienships <TIMESTAMPMS PERSON1 PERSON2>
+            // - Nobody is friend of himself and no friendship appears twice, so the count is capped to the possible pairs
+            final long friendships = Math.min((long) arraySize * densityOfFriendships,
+                                              (long) arraySize * (arraySize - 1) / 2);
             for (int i = 0; i < trials; i++) {
                 try {
-                    Set<String> connectedPeople = new HashSet<>();
-
-                    BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
-                    for (int j = 0; j < arraySize * densityOfFriendships; j++) {
-                        // Generate random people IDs
-                        // - randomPerson1 cannot be equals to randomPerson2
-                        // - Connection between two people cannot be done more than once (using helper HashSet to track)
-                        // - We stop generating new IDs if we've connected N different people to avoid infinite loops of regenerations
-                        int randomPerson1 = - 1;
-                        int randomPerson2 = -1;
-                        do {
-                            randomPerson1 = StdRandom.uniform(0, arraySize);
-                            randomPerson2 = StdRandom.uniform(0, arraySize);
-                        }
-                        while( connectedPeople.size() < arraySize * 2 &&
-                               ( randomPerson1 == randomPerson2 ||
-                                 connectedPeople.contains(randomPerson1 + " " + randomPerson2) ||
-                                 connectedPeople.contains(randomPerson2 + " " + randomPerson1) ) );
-
-                        // <RANDOM_TIMESTAMP_MS> <ID_PERSON1> <ID_PERSON2>
-                        String newLine = (1577548293575L + (j + 1) * 1000 ) + " " + randomPerson1 + " " + randomPerson2;
-                        writer.write(newLine);
-                        writer.newLine();
-
-                        // Remove to print created line
-                        //System.out.println(newLine);
-
-                        connectedPeople.add(randomPerson1 + " " + randomPerson2);
-                        connectedPeople.add(randomPerson2 + " " + randomPerson1);
-                    }
-                    writer.close();
+                    FriendshipLogGenerator.generate(filename, arraySize, friendships,
+                                                    StdRandom.uniform(Long.MAX_VALUE), 1, sparseIds);
                 } catch (IOException e) {
                     System.out.println("An error occurred.");
                     e.printStackTrace();
                 }
 
-                SocialNetworkConnectivity socialNetworkConnectivity = new SocialNetworkConnectivity(arraySize);
+                SocialNetworkConnectivity socialNetworkConnectivity =
+                        sparseIds ? SocialNetworkConnectivity.withSparseIds(arraySize)
+                                  : new SocialNetworkConnectivity(arraySize, strategy);
                 
-                String earliestCompleteConnection = socialNetworkConnectivity.earliestCompleteConnection(filename);
+                String earliestCompleteConnection =
+                        socialNetworkConnectivity.earliestCompleteConnectionMapped(filename, null);
                 if (earliestCompleteConnection.isEmpty()) {
                     System.out.println( "No complete connection detected in file " + filename );
                 }
@@ -0,0 +1,214 @@
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/**
+ * The HierarchicalBitSet class models a subset of {0, 1, ..., n-1} supporting insert, delete,
+ * successor and predecessor, with re-insertion of deleted elements, e.g. as a free-slot
+ * allocator. Like a van Emde Boas tree with a branching factor of 64, it stores one bit per
+ * element in level 0, and bit i of level l + 1 is set if word i of level l is not empty. Every
+ * operation walks at most one word per level, using Long.numberOfTrailingZeros (or leading zeros)
+ * to pick the bit inside a word: O(log_64 n), i.e. 4 levels for 2^24 elements and 6 for 2^31.
+ * Memory is about n * 65 / 64 bits.
+ *
+ * @author Alessio Vallero
+ */
+public class HierarchicalBitSet {
+    private final int n;
+    private final long[][] words;    // words[l][i] = bits of the elements 64 * i to 64 * i + 63 of level l
+    private int size;
+
+    /**
+     * Creates a subset of {0, 1, ..., n-1}, either empty or full
+     *
+     * @param n    size of the universe
+     * @param full true to start with every element, false to start empty
+     */
+    public HierarchicalBitSet(int n, boolean full) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        this.n = n;
+
+        int levels = 1;
+        for (long bits = n; bits > 64; bits = (bits + 63) >>> 6) {
+            levels++;
+        }
+        words = new long[levels][];
+
+        long bits = n;
+        for (int l = 0; l < levels; l++) {
+            words[l] = new long[(int) Math.max(1, (bits + 63) >>> 6)];
+            if (full) {
+                // Set the first bits bits of the level
+                for (int i = 0; i < bits >>> 6; i++) {
+                    words[l][i] = -1L;
+                }
+                if ((bits & 63) != 0) words[l][(int) (bits >>> 6)] = (1L << bits) - 1;
+            }
+            bits = (bits + 63) >>> 6;
+        }
+
+        size = full ? n : 0;
+    }
+
+    private void validate(int x) {
+        if (x < 0 || x >= n)
+            throw new IllegalArgumentException("index " + x + " is not between 0 and " + (n - 1));
+    }
+
+    /**
+     * Return the number of elements in the set.
+     * @return Number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is x in the set?
+     * @param x Element
+     * @return true if x is in the set, false otherwise
+     */
+    public boolean contains(int x) {
+        validate(x);
+
+        return (words[0][x >>> 6] & (1L << x)) != 0;
+    }
+
+    /**
+     * Add x to the set.
+     * @param x Element to add
+     * @return true if x was added, false if it was already in the set
+     */
+    public boolean insert(int x) {
+        validate(x);
+        if (contains(x)) return false;
+
+        // Set the bit of x, then of its word on each level above, until a word was not empty
+        for (int l = 0, i = x; l < words.length; l++, i >>>= 6) {
+            long word = words[l][i >>> 6];
+            words[l][i >>> 6] = word | (1L << i);
+            if (word != 0) break;
+        }
+
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove x from the set.
+     * @param x Element to remove
+     * @return true if x was removed, false if it was not in the set
+     */
+    public boolean delete(int x) {
+        validate(x);
+        if (!contains(x)) return false;
+
+        // Clear the bit of x, then of its word on each level above, while words become empty
+        for (int l = 0, i = x; l < words.length; l++, i >>>= 6) {
+            long word = words[l][i >>> 6] & ~(1L << i);
+            words[l][i >>> 6] = word;
+            if (word != 0) break;
+        }
+
+        size--;
+        return true;
+    }
+
+    /**
+     * Return the smallest element of the set greater than or equal to x
+     * @param x Element
+     * @return Successor of x, -1 if there is none
+     */
+    public int successor(int x) {
+        validate(x);
+
+        // Climb until a word has a set bit at or after the position, then descend to its first bit
+        int i = x;
+        for (int l = 0; l < words.length; l++) {
+            int w = i >>> 6;
+            if (w >= words[l].length) return -1;
+
+            long bits = words[l][w] & (-1L << i);
+            if (bits != 0) {
+                i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                while (l > 0) {
+                    l--;
+                    i = (i << 6) + Long.numberOfTrailingZeros(words[l][i]);
+                }
+                return i;
+            }
+            i = w + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Return the largest element of the set smaller than or equal to x
+     * @param x Element
+     * @return Predecessor of x, -1 if there is none
+     */
+    public int predecessor(int x) {
+        validate(x);
+
+        // Climb until a word has a set bit at or before the position, then descend to its last bit
+        int i = x;
+        for (int l = 0; l < words.length; l++) {
+            if (i < 0) return -1;
+
+            int w = i >>> 6;
+            long bits = words[l][w] & (-1L >>> (63 - (i & 63)));
+            if (bits != 0) {
+                i = (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                while (l > 0) {
+                    l--;
+                    i = (i << 6) + 63 - Long.numberOfLeadingZeros(words[l][i]);
+                }
+                return i;
+            }
+            i = w - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Test client: random inserts, deletes, successor and predecessor queries on a set that
+     * starts full.
+     *
+     * @param args Proper Usage is: HierarchicalBitSet <ARRAY_SIZE> <OPERATIONS>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 2) {
+            System.out.println("Proper Usage is: HierarchicalBitSet <ARRAY_SIZE> <OPERATIONS>");
+        }
+        else {
+            final int arraySize = Integer.parseInt(args[0]);
+            final int operations = Integer.parseInt(args[1]);
+
+            Stopwatch stopwatch = new Stopwatch();
+            HierarchicalBitSet set = new HierarchicalBitSet(arraySize, true);
+
+            long checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                int x = StdRandom.uniform(arraySize);
+                switch (StdRandom.uniform(4)) {
+                    case 0:
+                        set.delete(x);
+                        break;
+                    case 1:
+                        set.insert(x);
+                        break;
+                    case 2:
+                        checksum += set.successor(x);
+                        break;
+                    default:
+                        checksum += set.predecessor(x);
+                        break;
+                }
+            }
+
+            System.out.println("elements: " + set.size() + ", checksum: " + checksum);
+            System.out.println("elapsed time: " + stopwatch.elapsedTime());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/**
+ * The SuccessorPredecessorIndex class models the set S = {0, 1, ..., n-1} with deletions, and
+ * finds the successor (smallest y in S with y >= x) and the predecessor (largest y in S with
+ * y <= x) of any x, e.g. as a free-slot allocator.
+ *
+ * Each element keeps a next pointer, to itself while it is in S and to a larger element once
+ * deleted, plus a previous pointer the other way round: the successor is the end of the next
+ * pointer chain, compressed on the way like the find of a union-find. Two sentinels past the
+ * ends are never deleted, so chains always end. A range deletion points every element still in
+ * the range straight past it, so deleting k elements costs O(k) plus one successor search. The
+ * chains are always linked towards the larger (or smaller) element, so there is no union by rank
+ * or size to pair with the compression, and a search is O(log n) amortised rather than O(α(n)).
+ *
+ * @author Alessio Vallero
+ */
+public class SuccessorPredecessorIndex {
+    private final int[] next;        // next[x] = x if x is in S, a larger element otherwise; next[n] = n
+    private final int[] previous;    // previous[x + 1] = same for x the other way; previous[0] = 0
+    private int size;
+
+    /**
+     * Creates the set {0, 1, ..., n-1}
+     *
+     * @param n size of the set
+     */
+    public SuccessorPredecessorIndex(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        size = n;
+        next = new int[n + 1];
+        previous = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            next[i] = i;
+            previous[i] = i;
+        }
+    }
+
+    private void validate(int x) {
+        if (x < 0 || x >= next.length - 1)
+            throw new IllegalArgumentException("index " + x + " is not between 0 and " + (next.length - 2));
+    }
+
+    /**
+     * Follow pointers from x to the end of the chain, then point every element of the chain
+     * straight to it.
+     */
+    private static int find(int[] pointers, int x) {
+        int root = x;
+        while (pointers[root] != root) {
+            root = pointers[root];
+        }
+        while (pointers[x] != root) {
+            int following = pointers[x];
+            pointers[x] = root;
+            x = following;
+        }
+        return root;
+    }
+
+    /**
+     * Return the number of elements in the set.
+     * @return Number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is x in the set?
+     * @param x Element
+     * @return true if x was not deleted, false otherwise
+     */
+    public boolean contains(int x) {
+        validate(x);
+
+        return next[x] == x;
+    }
+
+    /**
+     * Delete x from the set. Deleting an element that was already deleted does nothing.
+     * @param x Element to delete
+     */
+    public void delete(int x) {
+        validate(x);
+        if (next[x] != x) return;
+
+        next[x] = x + 1;
+        previous[x + 1] = x;
+        size--;
+    }
+
+    /**
+     * Delete every element from lo (inclusive) to hi (exclusive). Only the elements still in the
+     * set are visited.
+     * @param lo First element to delete
+     * @param hi Element after the last one to delete
+     */
+    public void deleteRange(int lo, int hi) {
+        if (lo < 0 || hi > next.length - 1 || lo > hi) throw new IllegalArgumentException();
+
+        for (int x = find(next, lo); x < hi; x = find(next, x + 1)) {
+            // Point straight past the range, so later searches skip it in one step
+            next[x] = hi;
+            previous[x + 1] = lo;
+            size--;
+        }
+    }
+
+    /**
+     * Return the smallest element of the set greater than or equal to x
+     * @param x Element
+     * @return Successor of x, -1 if there is none
+     */
+    public int successor(int x) {
+        validate(x);
+
+        int successor = find(next, x);
+        return successor == next.length - 1 ? -1 : successor;
+    }
+
+    /**
+     * Return the largest element of the set smaller than or equal to x
+     * @param x Element
+     * @return Predecessor of x, -1 if there is none
+     */
+    public int predecessor(int x) {
+        validate(x);
+
+        return find(previous, x + 1) - 1;
+    }
+
+    /**
+     * Return the successors of a batch of elements.
+     * @param queries Elements
+     * @return successors[k] is the successor of queries[k], -1 if there is none
+     */
+    public int[] successors(int[] queries) {
+        int[] successors = new int[queries.length];
+        for (int k = 0; k < queries.length; k++) {
+            successors[k] = successor(queries[k]);
+        }
+        return successors;
+    }
+
+    /**
+     * Test client: deletes random elements and ranges, answering random successor and
+     * predecessor queries in between.
+     *
+     * @param args Proper Usage is: SuccessorPredecessorIndex <ARRAY_SIZE> <OPERATIONS>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 2) {
+            System.out.println("Proper Usage is: SuccessorPredecessorIndex <ARRAY_SIZE> <OPERATIONS>");
+        }
+        else {
+            final int arraySize = Integer.parseInt(args[0]);
+            final int operations = Integer.parseInt(args[1]);
+
+            Stopwatch stopwatch = new Stopwatch();
+            SuccessorPredecessorIndex index = new SuccessorPredecessorIndex(arraySize);
+
+            int[] queries = new int[64];
+            long checksum = 0;
+            for (int i = 0; i < operations; i++) {
+                int choice = StdRandom.uniform(4);
+                int x = StdRandom.uniform(arraySize);
+                if (choice == 0) {
+                    index.delete(x);
+                }
+                else if (choice == 1) {
+                    index.deleteRange(x, Math.min(arraySize, x + StdRandom.uniform(1, 16)));
+                }
+                else if (choice == 2) {
+                    checksum += index.predecessor(x);
+                }
+                else {
+                    for (int k = 0; k < queries.length; k++) {
+                        queries[k] = StdRandom.uniform(arraySize);
+                    }
+                    for (int successor : index.successors(queries)) {
+                        checksum += successor;
+                    }
+                }
+            }
+
+            System.out.println("elements left: " + index.size() + ", checksum: " + checksum);
+            System.out.println("elapsed time: " + stopwatch.elapsedTime());
+        }
+    }
+}
@@ -1,6 +1,5 @@
 import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.Stopwatch;
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -11,7 +10,7 @@ import java.util.Set;
  * @author Alessio Vallero
  */
 public class SuccessorWithDelete {
-    private final WeightedQuickUnionUF weightedQuickUnionDeleted;
+    private final UnionFind unionFindDeleted;
     private final int[] arData;
     private final int[] arDataSuccessors;
 
@@ -21,6 +20,19 @@ public class SuccessorWithDelete {
      * @param n size of the array
      */
     public SuccessorWithDelete(int n) {
+        this(n, UnionFindStrategy.PATH_HALVING);
+    }
+
+    /**
+     * Creates an n-sized array, with all successors initially set to the next element, using the
+     * given union-find implementation
+     *
+     * @param n        size of the array
+     * @param strategy Union-find implementation
+     */
+    public SuccessorWithDelete(int n, UnionFindStrategy strategy) {
+        if (strategy == null) throw new IllegalArgumentException();
+
         arData = new int[n];
         // Init successors
         arDataSuccessors = new int[n];
@@ -30,7 +42,7 @@ public class SuccessorWithDelete {
         }
         arDataSuccessors[n-1] = -1;
 
-        weightedQuickUnionDeleted = new WeightedQuickUnionUF(n);
+        unionFindDeleted = strategy.create(n);
     }
 
     /**
@@ -39,9 +51,9 @@ public class SuccessorWithDelete {
      */
     public void deleteElement(int i) {
         if( i > 0 ) {
-            weightedQuickUnionDeleted.union(i, i-1);
+            unionFindDeleted.union(i, i-1);
 
-            int root = weightedQuickUnionDeleted.find(i-1);
+            int root = unionFindDeleted.find(i-1);
             if( i < arData.length - 1 ) {
                 if (arData[arDataSuccessors[root]] < arData[i + 1]) {
                     arDataSuccessors[root] = i + 1;
@@ -59,7 +71,7 @@ public class SuccessorWithDelete {
      * @return The successor's value
      */
     public int getSuccessor(int i) {
-        int root = weightedQuickUnionDeleted.find(i);
+        int root = unionFindDeleted.find(i);
 
         if( arDataSuccessors[root] == -1) return -1;
 
@@ -69,14 +81,17 @@ public class SuccessorWithDelete {
     /**
      * Test client
      *
-     * @param args Proper Usage is: SuccessorWithDelete <ARRAY_SIZE> <TRIALS_N>
+     * @param args Proper Usage is: SuccessorWithDelete <ARRAY_SIZE> <TRIALS_N> [UNION_FIND_STRATEGY]
      */
     public static void main(String[] args) {
         // Check how many arguments were passed in
         if (args.length < 2) {
-            System.out.println("Proper Usage is: SuccessorWithDelete <ARRAY_SIZE> <TRIALS>");
+            System.out.println("Proper Usage is: SuccessorWithDelete <ARRAY_SIZE> <TRIALS> [UNION_FIND_STRATEGY]");
         }
         else {
+            UnionFindStrategy strategy = args.length > 2 ? UnionFindStrategy.valueOf(args[2])
+                                                         : UnionFindStrategy.PATH_HALVING;
+
             Stopwatch stopwatch = new Stopwatch();
 
             int randomDeleteCount = StdRandom.uniform(1, Integer.parseInt(args[0]) / 2);
@@ -87,7 +102,7 @@ public class SuccessorWithDelete {
             for (int i = 0; i < Integer.parseInt(args[1]); i++) {
                 Set<Integer> deletedElements = new HashSet<Integer>();
 
-                SuccessorWithDelete successorWithDelete = new SuccessorWithDelete(Integer.parseInt(args[0]));
+                SuccessorWithDelete successorWithDelete = new SuccessorWithDelete(Integer.parseInt(args[0]), strategy);
 
                 int count = 0;
                 do {
@@ -0,0 +1,215 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The ConcurrentUnionFindWithCanonicalElement class models a lock-free union-find that tracks the
+ * largest element of each set, so unions can be fed from many threads. As in Anderson–Woll, roots
+ * are linked with a CAS on the parent array, which only succeeds while the linked node is still a
+ * root; a failed CAS means another thread got there first, and the union is retried on the new
+ * roots. Unlike Anderson–Woll, roots are not linked by rank but by a fixed pseudo-random priority
+ * (randomized linking), which keeps trees shallow in expectation without storing ranks, so a link
+ * is a single CAS with no rank to update alongside it.
+ *
+ * find() and findMax() never block or retry: they only read, plus path-halving writes that are
+ * allowed to fail. connected() is lock-free but not wait-free: it re-runs both finds whenever a
+ * concurrent union links p's root away in between. While unions are in flight, findMax() can
+ * briefly miss the maximum of a set that is being merged in; it is exact once the unions have
+ * returned.
+ *
+ * @author Alessio Vallero
+ */
+public class ConcurrentUnionFindWithCanonicalElement {
+    private final AtomicIntegerArray indexesOfMaxOfSet;    // max of the set rooted at i
+    private final AtomicIntegerArray id;                   // id[i] = parent of i
+    private final AtomicInteger count;                     // number of components
+
+    /**
+     * Create an empty union find data structure with n isolated sets.
+     *
+     * @param n Size of the array
+     */
+    public ConcurrentUnionFindWithCanonicalElement(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        count = new AtomicInteger(n);
+        indexesOfMaxOfSet = new AtomicIntegerArray(n);
+        id = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            indexesOfMaxOfSet.set(i, i);
+            id.set(i, i);
+        }
+    }
+
+    /**
+     * Linking priority of element p: multiplying by an odd constant is a bijection on ints, so
+     * priorities are distinct and look random with respect to the element values.
+     *
+     * @param p Element
+     * @return Priority of p
+     */
+    private static int priority(int p) {
+        return p * 0x9E3779B9;
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= id.length())
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (id.length() - 1));
+    }
+
+    /**
+     * Return the number of disjoint sets.
+     * @return Number of disjoint sets
+     */
+    public int count() {
+        return count.get();
+    }
+
+    /**
+     * Return root for component containing p. Path halving is done with CAS that may fail
+     * harmlessly if another thread changed the parent first.
+     * @param p Component for which return the root element
+     * @return Root element of p
+     */
+    public int find(int p) {
+        validate(p);
+        while (true) {
+            int parent = id.get(p);
+            if (parent == p) return p;
+
+            int grandparent = id.get(parent);
+            if (grandparent != parent) id.compareAndSet(p, parent, grandparent);
+            p = grandparent;
+        }
+    }
+
+    /**
+     * Return max element for the set where p is contained
+     * @param p Element for whom search the max of its set
+     * @return Max element
+     */
+    public int findMax(int p) {
+        return indexesOfMaxOfSet.get(find(p));
+    }
+
+    /**
+     * Are objects p and q in the same set? Since roots can change concurrently, the roots are
+     * re-read until they are stable, which can only fail while unions keep linking them: lock-free,
+     * not wait-free.
+     * @param p First object
+     * @param q Second object
+     * @return true if p and q are in the same set, false otherwise.
+     */
+    public boolean connected(int p, int q) {
+        while (true) {
+            int i = find(p);
+            int j = find(q);
+            if (i == j) return true;
+            // i still a root means p and q were in different sets when j was read
+            if (id.get(i) == i) return false;
+        }
+    }
+
+    /**
+     * Replace sets containing p and q with their union. Safe to call from many threads.
+     * @param p First object
+     * @param q Second object
+     */
+    public void union(int p, int q) {
+        while (true) {
+            int i = find(p);
+            int j = find(q);
+            if (i == j) return;
+
+            // link lower priority root below higher one
+            if (priority(i) > priority(j)) {
+                int swap = i;
+                i = j;
+                j = swap;
+            }
+
+            if (id.compareAndSet(i, i, j)) {
+                count.decrementAndGet();
+                propagateMax(indexesOfMaxOfSet.get(i), j);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Raise the max of the set rooted at root to at least max. If root stops being a root
+     * meanwhile, whoever linked it may have copied its max before the raise, so the raise is
+     * repeated on the new root until it lands on a node that is still a root afterwards.
+     * @param max  Candidate max
+     * @param root Root of the set
+     */
+    private void propagateMax(int max, int root) {
+        while (true) {
+            indexesOfMaxOfSet.accumulateAndGet(root, max, Math::max);
+            if (id.get(root) == root) return;
+
+            root = find(root);
+        }
+    }
+
+    /**
+     * Test client: feeds random unions from THREADS threads and checks every max against a
+     * sequential UnionFindWithCanonicalElement fed with the same edges.
+     *
+     * @param args Proper Usage is: ConcurrentUnionFindWithCanonicalElement <ARRAY_SIZE> <EDGES> <THREADS>
+     */
+    public static void main(String[] args) throws InterruptedException {
+        // Check how many arguments were passed in
+        if (args.length < 3) {
+            System.out.println("Proper Usage is: ConcurrentUnionFindWithCanonicalElement <ARRAY_SIZE> <EDGES> <THREADS>");
+        }
+        else {
+            final int arraySize = Integer.parseInt(args[0]);
+            final int edges = Integer.parseInt(args[1]);
+            final int threads = Integer.parseInt(args[2]);
+
+            SplittableRandom random = new SplittableRandom();
+            final int[] first = new int[edges];
+            final int[] second = new int[edges];
+            for (int i = 0; i < edges; i++) {
+                first[i] = random.nextInt(arraySize);
+                second[i] = random.nextInt(arraySize);
+            }
+
+            Stopwatch stopwatch = new Stopwatch();
+            ConcurrentUnionFindWithCanonicalElement concurrent =
+                    new ConcurrentUnionFindWithCanonicalElement(arraySize);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                final int from = (int) ((long) edges * t / threads);
+                final int to = (int) ((long) edges * (t + 1) / threads);
+                workers[t] = new Thread(() -> {
+                    for (int i = from; i < to; i++) {
+                        concurrent.union(first[i], second[i]);
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            System.out.println("concurrent elapsed time: " + stopwatch.elapsedTime());
+
+            stopwatch = new Stopwatch();
+            UnionFindWithCanonicalElement sequential = new UnionFindWithCanonicalElement(arraySize);
+            for (int i = 0; i < edges; i++) {
+                sequential.union(first[i], second[i]);
+            }
+            System.out.println("sequential elapsed time: " + stopwatch.elapsedTime());
+
+            int mismatches = 0;
+            for (int j = 0; j < arraySize; j++) {
+                if (concurrent.findMax(j) != sequential.findMax(j)) mismatches++;
+            }
+            System.out.println("components: " + concurrent.count() + ", expected " + sequential.count());
+            System.out.println("max mismatches: " + mismatches);
+        }
+    }
+}
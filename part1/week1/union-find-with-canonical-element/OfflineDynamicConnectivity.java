@@ -0,0 +1,271 @@
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The OfflineDynamicConnectivity class answers a batch of add edge / remove edge / connected
+ * queries, e.g. "would the network still be connected without this edge?", without rebuilding
+ * anything from scratch. The batch is recorded first and solved offline: each edge is alive over
+ * an interval of query times, which is stored in the O(log q) nodes of a segment tree over time
+ * covering it. A depth-first visit of the tree applies the edges of a node on the way down and
+ * rolls them back on the way up with a RollbackUnionFindWithCanonicalElement, so every leaf sees
+ * exactly the edges alive at its time. Total time O(q log q log n).
+ *
+ * @author Alessio Vallero
+ */
+public class OfflineDynamicConnectivity {
+    private static final int ADD = 0, REMOVE = 1, CONNECTED = 2;
+
+    private final int n;
+
+    // Recorded operations, in order
+    private int[] types = new int[16];
+    private int[] firsts = new int[16];
+    private int[] seconds = new int[16];
+    private int operations;
+    private int queries;
+
+    // Alive edges: key of the edge -> time it was added
+    private final Map<Long, Integer> aliveSince = new HashMap<>();
+
+    /**
+     * Create an empty batch over the elements 0..n-1.
+     *
+     * @param n Number of elements
+     */
+    public OfflineDynamicConnectivity(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        this.n = n;
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= n)
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (n - 1));
+    }
+
+    /**
+     * Undirected edge key, the same for (p, q) and (q, p).
+     */
+    private static long edgeKey(int p, int q) {
+        return ((long) Math.min(p, q) << 32) | Math.max(p, q);
+    }
+
+    private void record(int type, int p, int q) {
+        validate(p);
+        validate(q);
+
+        if (operations == types.length) {
+            types = Arrays.copyOf(types, operations * 2);
+            firsts = Arrays.copyOf(firsts, operations * 2);
+            seconds = Arrays.copyOf(seconds, operations * 2);
+        }
+        types[operations] = type;
+        firsts[operations] = p;
+        seconds[operations] = q;
+        operations++;
+    }
+
+    /**
+     * Add edge (p, q). Adding an edge that is already there does nothing.
+     * @param p First object
+     * @param q Second object
+     */
+    public void add(int p, int q) {
+        record(ADD, p, q);
+        aliveSince.putIfAbsent(edgeKey(p, q), operations - 1);
+    }
+
+    /**
+     * Remove edge (p, q). Throw an IllegalArgumentException if the edge is not there.
+     * @param p First object
+     * @param q Second object
+     */
+    public void remove(int p, int q) {
+        validate(p);
+        validate(q);
+        if (aliveSince.remove(edgeKey(p, q)) == null) throw new IllegalArgumentException();
+
+        record(REMOVE, p, q);
+    }
+
+    /**
+     * Ask whether p and q are connected at this point of the batch.
+     * @param p First object
+     * @param q Second object
+     * @return Index of the query in the array returned by solve()
+     */
+    public int connected(int p, int q) {
+        record(CONNECTED, p, q);
+        return queries++;
+    }
+
+    /**
+     * Answer every connected query of the batch.
+     * @return answers[k] is the answer of the k-th connected query
+     */
+    public boolean[] solve() {
+        // Rebuild the alive intervals [from, to) of every edge
+        Map<Long, Integer> since = new HashMap<>();
+        int[] edgeP = new int[operations], edgeQ = new int[operations];
+        int[] edgeFrom = new int[operations], edgeTo = new int[operations];
+        int edges = 0;
+        for (int t = 0; t < operations; t++) {
+            if (types[t] == CONNECTED) continue;
+
+            long key = edgeKey(firsts[t], seconds[t]);
+            if (types[t] == ADD) {
+                since.putIfAbsent(key, t);
+            }
+            else {
+                edgeP[edges] = firsts[t];
+                edgeQ[edges] = seconds[t];
+                edgeFrom[edges] = since.remove(key);
+                edgeTo[edges] = t;
+                edges++;
+            }
+        }
+        for (Map.Entry<Long, Integer> alive : since.entrySet()) {
+            long key = alive.getKey();
+            edgeP[edges] = (int) (key >>> 32);
+            edgeQ[edges] = (int) key;
+            edgeFrom[edges] = alive.getValue();
+            edgeTo[edges] = operations;
+            edges++;
+        }
+
+        // Store each interval in the segment tree nodes covering it, as compact per-node lists
+        int nodes = 4 * Math.max(1, operations);
+        int[] nodeStart = new int[nodes + 1];
+        for (int e = 0; e < edges; e++) {
+            cover(1, 0, operations, edgeFrom[e], edgeTo[e], nodeStart, null, e);
+        }
+        for (int v = 0; v < nodes; v++) {
+            nodeStart[v + 1] += nodeStart[v];
+        }
+        int[] nodeEdges = new int[nodeStart[nodes]];
+        int[] fill = Arrays.copyOf(nodeStart, nodes);
+        for (int e = 0; e < edges; e++) {
+            cover(1, 0, operations, edgeFrom[e], edgeTo[e], fill, nodeEdges, e);
+        }
+
+        // Number of connected queries before each time, to skip subtrees without any
+        int[] queriesBefore = new int[operations + 1];
+        for (int t = 0; t < operations; t++) {
+            queriesBefore[t + 1] = queriesBefore[t] + (types[t] == CONNECTED ? 1 : 0);
+        }
+
+        boolean[] answers = new boolean[queries];
+        if (operations > 0) {
+            RollbackUnionFindWithCanonicalElement unionFind =
+                    new RollbackUnionFindWithCanonicalElement(n);
+            visit(1, 0, operations, nodeStart, nodeEdges, edgeP, edgeQ, queriesBefore, unionFind,
+                  answers);
+        }
+
+        return answers;
+    }
+
+    /**
+     * Add edge e to the nodes of the subtree rooted at node, covering [lo, hi), that cover
+     * [from, to). With nodeEdges null, only count the edges of each node in slots[node + 1];
+     * otherwise write e at slots[node]++ of nodeEdges.
+     */
+    private static void cover(int node, int lo, int hi, int from, int to, int[] slots,
+                              int[] nodeEdges, int e) {
+        if (to <= lo || hi <= from) return;
+
+        if (from <= lo && hi <= to) {
+            if (nodeEdges == null) slots[node + 1]++;
+            else nodeEdges[slots[node]++] = e;
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        cover(2 * node, lo, mid, from, to, slots, nodeEdges, e);
+        cover(2 * node + 1, mid, hi, from, to, slots, nodeEdges, e);
+    }
+
+    /**
+     * Apply the edges of node, answer the queries in [lo, hi) below it, then roll back.
+     */
+    private void visit(int node, int lo, int hi, int[] nodeStart, int[] nodeEdges, int[] edgeP,
+                       int[] edgeQ, int[] queriesBefore,
+                       RollbackUnionFindWithCanonicalElement unionFind, boolean[] answers) {
+        if (queriesBefore[hi] == queriesBefore[lo]) return;
+
+        int snapshot = unionFind.snapshot();
+        for (int k = nodeStart[node]; k < nodeStart[node + 1]; k++) {
+            unionFind.union(edgeP[nodeEdges[k]], edgeQ[nodeEdges[k]]);
+        }
+
+        if (hi - lo == 1) {
+            // A single time, holding a connected query since the range has one
+            answers[queriesBefore[lo]] = unionFind.connected(firsts[lo], seconds[lo]);
+        }
+        else {
+            int mid = (lo + hi) >>> 1;
+            visit(2 * node, lo, mid, nodeStart, nodeEdges, edgeP, edgeQ, queriesBefore, unionFind,
+                  answers);
+            visit(2 * node + 1, mid, hi, nodeStart, nodeEdges, edgeP, edgeQ, queriesBefore,
+                  unionFind, answers);
+        }
+
+        unionFind.rollback(snapshot);
+    }
+
+    /**
+     * Test client: a random batch of operations, answered offline.
+     *
+     * @param args Proper Usage is: OfflineDynamicConnectivity <ARRAY_SIZE> <OPERATIONS>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 2) {
+            System.out.println("Proper Usage is: OfflineDynamicConnectivity <ARRAY_SIZE> <OPERATIONS>");
+        }
+        else {
+            final int arraySize = Integer.parseInt(args[0]);
+            final int operations = Integer.parseInt(args[1]);
+
+            Stopwatch stopwatch = new Stopwatch();
+
+            OfflineDynamicConnectivity connectivity = new OfflineDynamicConnectivity(arraySize);
+            long[] aliveEdges = new long[operations];
+            int alive = 0;
+            for (int i = 0; i < operations; i++) {
+                int choice = StdRandom.uniform(3);
+                if (choice == 1 && alive > 0) {
+                    // Remove a random alive edge
+                    int k = StdRandom.uniform(alive);
+                    long key = aliveEdges[k];
+                    aliveEdges[k] = aliveEdges[--alive];
+                    connectivity.remove((int) (key >>> 32), (int) key);
+                }
+                else {
+                    int randomFirst = StdRandom.uniform(arraySize);
+                    int randomSecond = StdRandom.uniform(arraySize);
+                    if (choice == 0 && !connectivity.aliveSince.containsKey(edgeKey(randomFirst, randomSecond))) {
+                        connectivity.add(randomFirst, randomSecond);
+                        aliveEdges[alive++] = edgeKey(randomFirst, randomSecond);
+                    }
+                    else {
+                        connectivity.connected(randomFirst, randomSecond);
+                    }
+                }
+            }
+
+            boolean[] answers = connectivity.solve();
+            int connected = 0;
+            for (boolean answer : answers) {
+                if (answer) connected++;
+            }
+
+            System.out.println(answers.length + " queries, " + connected + " connected");
+            System.out.println("elapsed time: " + stopwatch.elapsedTime());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * The RollbackUnionFindWithCanonicalElement class models a union-find that tracks the largest
+ * element of each set and can undo unions. Trees are linked by size and never compressed, so a
+ * union changes exactly one parent pointer, one size and one max: each successful union pushes
+ * them on an operation stack, snapshot() returns the stack height and rollback() pops back to it.
+ * Every operation is O(log n).
+ *
+ * @author Alessio Vallero
+ */
+public class RollbackUnionFindWithCanonicalElement {
+    private final int[] indexesOfMaxOfSet;
+    private final int[] id;    // id[i] = parent of i
+    private final int[] sz;    // sz[i] = number of objects in subtree rooted at i
+    private int count;         // number of components
+
+    // Operation stack: linkedRoots[k] was linked below its parent, whose max was previousMaxes[k]
+    private final int[] linkedRoots;
+    private final int[] previousMaxes;
+    private int operations;
+
+    /**
+     * Create an empty union find data structure with n isolated sets.
+     *
+     * @param n Size of the array
+     */
+    public RollbackUnionFindWithCanonicalElement(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        count = n;
+        indexesOfMaxOfSet = new int[n];
+        id = new int[n];
+        sz = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexesOfMaxOfSet[i] = i;
+            id[i] = i;
+            sz[i] = 1;
+        }
+
+        // At most n - 1 unions can be live at the same time
+        linkedRoots = new int[Math.max(0, n - 1)];
+        previousMaxes = new int[Math.max(0, n - 1)];
+    }
+
+    /**
+     * Return the number of disjoint sets.
+     * @return Number of disjoint sets
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Return root for component containing p
+     * @param p Component for which return the root element
+     * @return Root element of p
+     */
+    public int find(int p) {
+        while (p != id[p])
+            p = id[p];
+        return p;
+    }
+
+    /**
+     * Return max element for the set where p is contained
+     * @param p Element for whom search the max of its set
+     * @return Max element
+     */
+    public int findMax(int p) {
+        return indexesOfMaxOfSet[find(p)];
+    }
+
+    /**
+     * Are objects p and q in the same set?
+     * @param p First object
+     * @param q Second object
+     * @return true if p and q are in the same set, false otherwise.
+     */
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    /**
+     * Replace sets containing p and q with their union, recording it on the operation stack.
+     * @param p First object
+     * @param q Second object
+     * @return true if two sets were merged, false if p and q were already connected
+     */
+    public boolean union(int p, int q) {
+        int i = find(p);
+        int j = find(q);
+        if (i == j) return false;
+
+        // make smaller root point to larger one
+        if (sz[i] > sz[j]) {
+            int swap = i;
+            i = j;
+            j = swap;
+        }
+
+        linkedRoots[operations] = i;
+        previousMaxes[operations] = indexesOfMaxOfSet[j];
+        operations++;
+
+        id[i] = j;
+        sz[j] += sz[i];
+        if (indexesOfMaxOfSet[i] > indexesOfMaxOfSet[j]) {
+            indexesOfMaxOfSet[j] = indexesOfMaxOfSet[i];
+        }
+
+        count--;
+        return true;
+    }
+
+    /**
+     * Return a snapshot of the current sets, to pass to rollback().
+     * @return Snapshot, the number of unions recorded so far
+     */
+    public int snapshot() {
+        return operations;
+    }
+
+    /**
+     * Undo every union done after snapshot was taken, most recent first.
+     * @param snapshot Value returned by snapshot()
+     */
+    public void rollback(int snapshot) {
+        if (snapshot < 0 || snapshot > operations) throw new IllegalArgumentException();
+
+        while (operations > snapshot) {
+            operations--;
+            int i = linkedRoots[operations];
+            int j = id[i];
+
+            sz[j] -= sz[i];
+            indexesOfMaxOfSet[j] = previousMaxes[operations];
+            id[i] = i;
+
+            count++;
+        }
+    }
+}
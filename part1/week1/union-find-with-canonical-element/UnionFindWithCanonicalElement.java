@@ -1,16 +1,33 @@
 import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.Stopwatch;
 
+import java.util.Arrays;
+import java.util.function.BinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+
 /**
- * The UnionFindWithCanonicalElement class model.
+ * The UnionFindWithCanonicalElement class model. Besides the max element, callers can register
+ * any number of per-set aggregates (min, sum, count, or any associative combine function): each
+ * one is merged at union() time and read in O(α(n)) per set. int and long aggregates are stored
+ * in primitive arrays and combined with primitive operators, so union() does not box.
  *
  * @author Alessio Vallero
  */
 public class UnionFindWithCanonicalElement {
-    private int[] indexesOfMaxOfSet;
-    private int[] id;    // id[i] = parent of i
-    private int[] sz;    // sz[i] = number of objects in subtree rooted at i
-    private int count;   // number of components
+    private int[] indexesOfMaxOfSet;    // indexesOfMaxOfSet[r] = max of the set rooted at r
+    private final UnionFind unionFind;
+
+    // Registered aggregates: values[a][r] = aggregate a of the set rooted at r
+    private int[][] intValues = new int[0][];
+    private IntBinaryOperator[] intCombiners = new IntBinaryOperator[0];
+    private long[][] longValues = new long[0][];
+    private LongBinaryOperator[] longCombiners = new LongBinaryOperator[0];
+    private Object[][] objectValues = new Object[0][];
+    private BinaryOperator<Object>[] objectCombiners = newObjectCombiners(0);
 
     /**
      * Create an empty union find data structure with n isolated sets.
@@ -18,14 +35,23 @@ public class UnionFindWithCanonicalElement {
      * @param n Size of the array
      */
     public UnionFindWithCanonicalElement(int n) {
-        count = n;
+        this(n, UnionFindStrategy.PATH_HALVING);
+    }
+
+    /**
+     * Create an empty union find data structure with n isolated sets, using the given union-find
+     * implementation.
+     *
+     * @param n        Size of the array
+     * @param strategy Union-find implementation
+     */
+    public UnionFindWithCanonicalElement(int n, UnionFindStrategy strategy) {
+        if (strategy == null) throw new IllegalArgumentException();
+
+        unionFind = strategy.create(n);
         indexesOfMaxOfSet = new int[n];
-        id = new int[n];
-        sz = new int[n];
         for (int i = 0; i < n; i++) {
             indexesOfMaxOfSet[i] = i;
-            id[i] = i;
-            sz[i] = 1;
         }
     }
 
@@ -34,7 +60,7 @@ public class UnionFindWithCanonicalElement {
      * @return Number of disjoint sets
      */
     public int count() {
-        return count;
+        return unionFind.count();
     }
 
     /**
@@ -43,9 +69,7 @@ public class UnionFindWithCanonicalElement {
      * @return Root element of p
      */
     public int find(int p) {
-        while (p != id[p])
-            p = id[p];
-        return p;
+        return unionFind.find(p);
     }
 
     /**
@@ -76,38 +100,167 @@ public class UnionFindWithCanonicalElement {
         int maxOfi = indexesOfMaxOfSet[i];
         int maxOfj = indexesOfMaxOfSet[j];
 
-        // make smaller root point to larger one
-        if (sz[i] < sz[j]) {
-            id[i] = j;
-            sz[j] += sz[i];
+        // The max of the merged set is kept on whichever root the union-find picked
+        int root = unionFind.union(i, j);
+        indexesOfMaxOfSet[root] = Math.max(maxOfi, maxOfj);
 
-            if( maxOfi > maxOfj ) {
-                indexesOfMaxOfSet[j] = indexesOfMaxOfSet[i];
-            }
+        // Same for the registered aggregates, always combined as (set of p, set of q)
+        for (int a = 0; a < intValues.length; a++) {
+            int[] values = intValues[a];
+            values[root] = intCombiners[a].applyAsInt(values[i], values[j]);
         }
-        else {
-            id[j] = i;
-            sz[i] += sz[j];
+        for (int a = 0; a < longValues.length; a++) {
+            long[] values = longValues[a];
+            values[root] = longCombiners[a].applyAsLong(values[i], values[j]);
+        }
+        for (int a = 0; a < objectValues.length; a++) {
+            Object[] values = objectValues[a];
+            values[root] = objectCombiners[a].apply(values[i], values[j]);
+            // Avoid loitering
+            values[root == i ? j : i] = null;
+        }
+    }
 
-            if( maxOfj > maxOfi ) {
-                indexesOfMaxOfSet[i] = indexesOfMaxOfSet[j];
-            }
+    /**
+     * Throw an IllegalStateException if a union already happened: aggregates are built from the
+     * singleton values, so they must be registered first.
+     */
+    private void validateNoUnion() {
+        if (unionFind.count() != unionFind.size()) throw new IllegalStateException();
+    }
+
+    /**
+     * Register an int aggregate, e.g. the min of per-element weights:
+     * addIntAggregate(i -> weight[i], Math::min). Must be called before any union.
+     * @param initialValue Value of the singleton set of each element
+     * @param combine      Associative function merging the values of two sets
+     * @return Handle of the aggregate, for intAggregate()
+     */
+    public int addIntAggregate(IntUnaryOperator initialValue, IntBinaryOperator combine) {
+        if (initialValue == null || combine == null) throw new IllegalArgumentException();
+        validateNoUnion();
+
+        int[] values = new int[unionFind.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = initialValue.applyAsInt(i);
         }
 
-        count--;
+        int handle = intValues.length;
+        intValues = Arrays.copyOf(intValues, handle + 1);
+        intCombiners = Arrays.copyOf(intCombiners, handle + 1);
+        intValues[handle] = values;
+        intCombiners[handle] = combine;
+
+        return handle;
+    }
+
+    /**
+     * Register a long aggregate, e.g. the member count addLongAggregate(i -> 1, Long::sum) or a
+     * total weight addLongAggregate(i -> weight[i], Long::sum). Must be called before any union.
+     * @param initialValue Value of the singleton set of each element
+     * @param combine      Associative function merging the values of two sets
+     * @return Handle of the aggregate, for longAggregate()
+     */
+    public int addLongAggregate(IntToLongFunction initialValue, LongBinaryOperator combine) {
+        if (initialValue == null || combine == null) throw new IllegalArgumentException();
+        validateNoUnion();
+
+        long[] values = new long[unionFind.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = initialValue.applyAsLong(i);
+        }
+
+        int handle = longValues.length;
+        longValues = Arrays.copyOf(longValues, handle + 1);
+        longCombiners = Arrays.copyOf(longCombiners, handle + 1);
+        longValues[handle] = values;
+        longCombiners[handle] = combine;
+
+        return handle;
+    }
+
+    /**
+     * Register an aggregate of any type, e.g. member counts by category kept in an immutable map.
+     * The combine function may reuse one of its arguments for the result. Must be called before
+     * any union.
+     * @param initialValue Value of the singleton set of each element
+     * @param combine      Associative function merging the values of two sets
+     * @param <T>          Type of the aggregate
+     * @return Handle of the aggregate, for aggregate()
+     */
+    @SuppressWarnings("unchecked")
+    public <T> int addAggregate(IntFunction<T> initialValue, BinaryOperator<T> combine) {
+        if (initialValue == null || combine == null) throw new IllegalArgumentException();
+        validateNoUnion();
+
+        Object[] values = new Object[unionFind.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = initialValue.apply(i);
+        }
+
+        int handle = objectValues.length;
+        objectValues = Arrays.copyOf(objectValues, handle + 1);
+        objectCombiners = Arrays.copyOf(objectCombiners, handle + 1);
+        objectValues[handle] = values;
+        objectCombiners[handle] = (BinaryOperator<Object>) combine;
+
+        return handle;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static BinaryOperator<Object>[] newObjectCombiners(int length) {
+        return (BinaryOperator<Object>[]) new BinaryOperator[length];
+    }
+
+    /**
+     * Return an int aggregate of the set where p is contained
+     * @param handle Handle returned by addIntAggregate()
+     * @param p      Element of the set
+     * @return Aggregate of the set
+     */
+    public int intAggregate(int handle, int p) {
+        if (handle < 0 || handle >= intValues.length) throw new IllegalArgumentException();
+        return intValues[handle][find(p)];
+    }
+
+    /**
+     * Return a long aggregate of the set where p is contained
+     * @param handle Handle returned by addLongAggregate()
+     * @param p      Element of the set
+     * @return Aggregate of the set
+     */
+    public long longAggregate(int handle, int p) {
+        if (handle < 0 || handle >= longValues.length) throw new IllegalArgumentException();
+        return longValues[handle][find(p)];
+    }
+
+    /**
+     * Return an aggregate of the set where p is contained
+     * @param handle Handle returned by addAggregate()
+     * @param p      Element of the set
+     * @param <T>    Type of the aggregate
+     * @return Aggregate of the set
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T aggregate(int handle, int p) {
+        if (handle < 0 || handle >= objectValues.length) throw new IllegalArgumentException();
+        return (T) objectValues[handle][find(p)];
     }
 
     /**
      * Test client
      *
-     * @param args Proper Usage is: UnionFindWithCanonicalElement <ARRAY_SIZE> <TRIALS_N>
+     * @param args Proper Usage is: UnionFindWithCanonicalElement <ARRAY_SIZE> <TRIALS_N> [UNION_FIND_STRATEGY]
      */
     public static void main(String[] args) {
         // Check how many arguments were passed in
         if (args.length < 2) {
-            System.out.println("Proper Usage is: UnionFindWithCanonicalElement <ARRAY_SIZE> <TRIALS>");
+            System.out.println("Proper Usage is: UnionFindWithCanonicalElement <ARRAY_SIZE> <TRIALS> [UNION_FIND_STRATEGY]");
         }
         else {
+            UnionFindStrategy strategy = args.length > 2 ? UnionFindStrategy.valueOf(args[2])
+                                                         : UnionFindStrategy.PATH_HALVING;
+
             Stopwatch stopwatch = new Stopwatch();
 
             int randomConnectCount = StdRandom.uniform(1, Integer.parseInt(args[0]) / 2);
@@ -116,7 +269,9 @@ public class UnionFindWithCanonicalElement {
 
             // For each trial, we create a new array and connect objects for randomConnectCount times
             for (int i = 0; i < Integer.parseInt(args[1]); i++) {
-                UnionFindWithCanonicalElement unionFindWithCanonicalElement = new UnionFindWithCanonicalElement(Integer.parseInt(args[0]));
+                UnionFindWithCanonicalElement unionFindWithCanonicalElement = new UnionFindWithCanonicalElement(Integer.parseInt(args[0]), strategy);
+                int minHandle = unionFindWithCanonicalElement.addIntAggregate(e -> e, Math::min);
+                int sizeHandle = unionFindWithCanonicalElement.addLongAggregate(e -> 1, Long::sum);
 
                 int count = 0;
                 do {
@@ -137,7 +292,11 @@ public class UnionFindWithCanonicalElement {
                 for( int j = 0 ; j < Integer.parseInt(args[0]) ; j++) {
                     int maxInSet = unionFindWithCanonicalElement.findMax(j);
                     if (maxInSet > -1) {
-                        System.out.println("Max of element " + j + " is element " + maxInSet );
+                        System.out.println("Max of element " + j + " is element " + maxInSet
+                                                   + ", min is element "
+                                                   + unionFindWithCanonicalElement.intAggregate(minHandle, j)
+                                                   + ", set size is "
+                                                   + unionFindWithCanonicalElement.longAggregate(sizeHandle, j));
                     }
                     else {
                         System.out.println("No successor for element " + j);
@@ -0,0 +1,82 @@
+/**
+ * The ByteRankUF class models a quick-union linked by rank, with find() doing path splitting
+ * (every node on the path points to its grandparent). Ranks never exceed log2(n) < 32, so they fit
+ * in a byte: 5 bytes per element instead of the 8 of a size-weighted union-find.
+ *
+ * @author Alessio Vallero
+ */
+public class ByteRankUF implements UnionFind {
+    private final int[] id;      // id[i] = parent of i
+    private final byte[] rank;   // rank[i] = upper bound of the height of the tree rooted at i
+    private int count;           // number of components
+
+    /**
+     * Create a union find data structure with n isolated sets.
+     *
+     * @param n Size of the array
+     */
+    public ByteRankUF(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        count = n;
+        id = new int[n];
+        rank = new byte[n];
+        for (int i = 0; i < n; i++) {
+            id[i] = i;
+        }
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= id.length)
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (id.length - 1));
+    }
+
+    @Override
+    public int size() {
+        return id.length;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public int find(int p) {
+        validate(p);
+        while (p != id[p]) {
+            int next = id[p];
+            id[p] = id[next];
+            p = next;
+        }
+        return p;
+    }
+
+    @Override
+    public int union(int p, int q) {
+        int i = find(p);
+        int j = find(q);
+        if (i == j) return i;
+
+        count--;
+
+        // make lower rank root point to higher one
+        if (rank[i] < rank[j]) {
+            id[i] = j;
+            return j;
+        }
+        else {
+            id[j] = i;
+            if (rank[i] == rank[j]) rank[i]++;
+            return i;
+        }
+    }
+
+    @Override
+    public void isolate(int p) {
+        validate(p);
+        if (id[p] != p) count++;
+        id[p] = p;
+        rank[p] = 0;
+    }
+}
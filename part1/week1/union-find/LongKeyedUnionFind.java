@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * The LongKeyedUnionFind class models a union-find over sparse 64-bit IDs whose number is not
+ * known up front. Each ID gets a dense slot the first time it is seen, through an open-addressing
+ * hash table of primitive longs (no Long boxing); the slot-indexed parent and size arrays, as well
+ * as the table, grow geometrically. Union by size, path halving.
+ *
+ * @author Alessio Vallero
+ */
+public class LongKeyedUnionFind {
+    private static final int EMPTY = -1;
+
+    // Open-addressing index: keys[h] is an ID, slots[h] its dense slot, EMPTY if unused
+    private long[] keys;
+    private int[] slots;
+    private int mask;
+
+    private int[] id;    // id[i] = parent of slot i
+    private int[] sz;    // sz[i] = number of objects in subtree rooted at slot i
+    private int size;    // number of IDs seen
+    private int count;   // number of components
+
+    /**
+     * Create an empty union-find.
+     *
+     * @param expectedIds Expected number of distinct IDs, only used to size the initial arrays
+     */
+    public LongKeyedUnionFind(int expectedIds) {
+        if (expectedIds < 0) throw new IllegalArgumentException();
+
+        int capacity = Math.max(16, expectedIds);
+        id = new int[capacity];
+        sz = new int[capacity];
+
+        // Keep the table at most half full
+        int tableSize = Integer.highestOneBit(Math.max(32, capacity * 2 - 1)) << 1;
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        Arrays.fill(slots, EMPTY);
+        mask = tableSize - 1;
+    }
+
+    /**
+     * Spread the bits of key, so that sequential or strided IDs do not cluster (MurmurHash3
+     * finalizer).
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Return the slot of key, or EMPTY if it has never been seen.
+     */
+    private int lookup(long key) {
+        for (int h = hash(key) & mask; ; h = (h + 1) & mask) {
+            if (slots[h] == EMPTY) return EMPTY;
+            if (keys[h] == key) return slots[h];
+        }
+    }
+
+    /**
+     * Return the slot of key, adding it as a new singleton set if it has never been seen.
+     *
+     * @param key ID
+     * @return Dense slot of key, between 0 and size() - 1
+     */
+    public int slotOf(long key) {
+        int h = hash(key) & mask;
+        for (; slots[h] != EMPTY; h = (h + 1) & mask) {
+            if (keys[h] == key) return slots[h];
+        }
+
+        if (size == id.length) {
+            id = Arrays.copyOf(id, size * 2);
+            sz = Arrays.copyOf(sz, size * 2);
+        }
+        int slot = size++;
+        id[slot] = slot;
+        sz[slot] = 1;
+        count++;
+
+        keys[h] = key;
+        slots[h] = slot;
+        if (size * 2 > keys.length) growTable();
+
+        return slot;
+    }
+
+    /**
+     * Double the hash table and reinsert every ID.
+     */
+    private void growTable() {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+
+        keys = new long[oldKeys.length * 2];
+        slots = new int[oldSlots.length * 2];
+        Arrays.fill(slots, EMPTY);
+        mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] == EMPTY) continue;
+
+            int h = hash(oldKeys[i]) & mask;
+            while (slots[h] != EMPTY) h = (h + 1) & mask;
+            keys[h] = oldKeys[i];
+            slots[h] = oldSlots[i];
+        }
+    }
+
+    /**
+     * Return the number of distinct IDs seen.
+     * @return Number of IDs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of disjoint sets among the IDs seen.
+     * @return Number of disjoint sets
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Has key been seen?
+     * @param key ID
+     * @return true if key was passed to slotOf() or union(), false otherwise
+     */
+    public boolean contains(long key) {
+        return lookup(key) != EMPTY;
+    }
+
+    /**
+     * Return root slot for the set containing the slot p
+     */
+    private int findSlot(int p) {
+        while (p != id[p]) {
+            id[p] = id[id[p]];
+            p = id[p];
+        }
+        return p;
+    }
+
+    /**
+     * Return the root slot of the set containing key. Throw an IllegalArgumentException if key
+     * has never been seen.
+     * @param key ID
+     * @return Root slot of key
+     */
+    public int find(long key) {
+        int slot = lookup(key);
+        if (slot == EMPTY) throw new IllegalArgumentException("unknown id " + key);
+
+        return findSlot(slot);
+    }
+
+    /**
+     * Are IDs p and q in the same set? IDs never seen are only connected to themselves.
+     * @param p First ID
+     * @param q Second ID
+     * @return true if p and q are in the same set, false otherwise.
+     */
+    public boolean connected(long p, long q) {
+        if (p == q) return true;
+
+        int i = lookup(p);
+        int j = lookup(q);
+        return i != EMPTY && j != EMPTY && findSlot(i) == findSlot(j);
+    }
+
+    /**
+     * Replace sets containing IDs p and q with their union, adding the IDs never seen before.
+     * @param p First ID
+     * @param q Second ID
+     * @return true if two sets were merged, false if p and q were already connected
+     */
+    public boolean union(long p, long q) {
+        int i = findSlot(slotOf(p));
+        int j = findSlot(slotOf(q));
+        if (i == j) return false;
+
+        // make smaller root point to larger one
+        if (sz[i] < sz[j]) {
+            id[i] = j;
+            sz[j] += sz[i];
+        }
+        else {
+            id[j] = i;
+            sz[i] += sz[j];
+        }
+
+        count--;
+        return true;
+    }
+}
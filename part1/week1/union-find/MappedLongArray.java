@@ -0,0 +1,128 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The MappedLongArray class models a long-indexed array of longs stored off-heap in a
+ * memory-mapped file. A single MappedByteBuffer is limited to 2GB, so the file is mapped in
+ * fixed-size chunks. New files are sparse: untouched elements read as 0 and cost no disk space.
+ *
+ * @author Alessio Vallero
+ */
+public class MappedLongArray implements Closeable {
+    private static final int CHUNK_SHIFT = 27;    // 2^27 longs = 1GB per mapping
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final File backingFile;
+    private final boolean deleteOnClose;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer[] chunks;
+    private final long length;
+
+    /**
+     * Map length longs of file, creating or extending it if needed. Existing content is kept, so
+     * a file written by a previous run can be reopened.
+     *
+     * @param backingFile   File holding the array, little-endian
+     * @param length        Number of elements
+     * @param deleteOnClose Delete the file on close()
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public MappedLongArray(File backingFile, long length, boolean deleteOnClose)
+            throws IOException {
+        if (length < 0) throw new IllegalArgumentException();
+
+        this.backingFile = backingFile;
+        this.deleteOnClose = deleteOnClose;
+        this.length = length;
+
+        file = new RandomAccessFile(backingFile, "rw");
+        try {
+            if (file.length() < length * 8) file.setLength(length * 8);
+
+            FileChannel channel = file.getChannel();
+            int chunkCount = (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT);
+            chunks = new MappedByteBuffer[chunkCount];
+            for (int c = 0; c < chunkCount; c++) {
+                long first = (long) c << CHUNK_SHIFT;
+                long elements = Math.min(CHUNK_MASK + 1, length - first);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, first * 8, elements * 8);
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a zero-filled array in a temporary file, deleted on close().
+     *
+     * @param length    Number of elements
+     * @param directory Directory of the temporary file, null for the default one
+     * @return New array
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedLongArray temporary(long length, File directory) throws IOException {
+        File temporaryFile = File.createTempFile("mapped-long-array", ".bin", directory);
+        temporaryFile.deleteOnExit();
+
+        return new MappedLongArray(temporaryFile, length, true);
+    }
+
+    /**
+     * Number of elements
+     *
+     * @return Length of the array
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Return element i
+     *
+     * @param i Index, between 0 and length() - 1
+     * @return Value of element i
+     */
+    public long get(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)].getLong((int) (i & CHUNK_MASK) << 3);
+    }
+
+    /**
+     * Set element i
+     *
+     * @param i     Index, between 0 and length() - 1
+     * @param value New value of element i
+     */
+    public void set(long i, long value) {
+        chunks[(int) (i >>> CHUNK_SHIFT)].putLong((int) (i & CHUNK_MASK) << 3, value);
+    }
+
+    /**
+     * Write every modified page back to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Close the file, deleting it if it was temporary. The mappings are released by the garbage
+     * collector, so the array must not be used afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+        if (deleteOnClose && !backingFile.delete()) {
+            throw new IOException("Cannot delete " + backingFile);
+        }
+    }
+}
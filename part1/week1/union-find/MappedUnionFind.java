@@ -0,0 +1,226 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * The MappedUnionFind class models a union-find over long elements 0..n-1 that lives off-heap in
+ * a memory-mapped file, for universes beyond 2^31 elements or too large for the JVM heap. Each
+ * element takes one long packing its parent and its rank; union by rank, path halving.
+ *
+ * The parent is stored XOR the element itself, so an all-zero entry is a singleton root: a new
+ * file needs no initialisation pass and stays sparse on disk. The file starts with a small header
+ * holding the size and the number of sets, so a union-find built by a previous run is reopened
+ * by just mapping the file again, whatever its size.
+ *
+ * @author Alessio Vallero
+ */
+public class MappedUnionFind implements Closeable {
+    private static final long MAGIC = 0x4d55464931L;    // "MUFI1"
+    private static final int HEADER = 4;                // magic, size, count, reserved
+
+    // Layout of an entry: bits 0-57 parent XOR element, bits 58-63 rank
+    private static final long PARENT_MASK = (1L << 58) - 1;
+    private static final int RANK_SHIFT = 58;
+    private static final long RANK_UNIT = 1L << RANK_SHIFT;
+
+    private final MappedLongArray entries;
+    private final long n;
+    private long count;
+
+    private MappedUnionFind(MappedLongArray entries, long n, long count) {
+        this.entries = entries;
+        this.n = n;
+        this.count = count;
+    }
+
+    /**
+     * Create a union-find of n isolated elements in file, replacing any previous content.
+     *
+     * @param file File holding the union-find
+     * @param n    Number of elements
+     * @return New union-find
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedUnionFind create(File file, long n) throws IOException {
+        if (n < 0 || n > PARENT_MASK + 1) throw new IllegalArgumentException();
+
+        if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+
+        MappedLongArray entries = new MappedLongArray(file, HEADER + n, false);
+        entries.set(1, n);
+        entries.set(2, n);
+        entries.set(0, MAGIC);
+
+        return new MappedUnionFind(entries, n, n);
+    }
+
+    /**
+     * Reopen a union-find saved in file by create() and close(), or force().
+     *
+     * @param file File holding the union-find
+     * @return Union-find with the sets it had when it was saved
+     * @throws IOException if the file cannot be mapped or does not hold a union-find
+     */
+    public static MappedUnionFind open(File file) throws IOException {
+        if (!file.isFile()) throw new IOException(file + " does not exist");
+
+        long length = file.length() / 8;
+        if (length < HEADER) throw new IOException(file + " is not a union-find file");
+
+        MappedLongArray entries = new MappedLongArray(file, length, false);
+        long n = entries.get(1);
+        if (entries.get(0) != MAGIC || n != length - HEADER) {
+            entries.close();
+            throw new IOException(file + " is not a union-find file");
+        }
+
+        return new MappedUnionFind(entries, n, entries.get(2));
+    }
+
+    private void validate(long p) {
+        if (p < 0 || p >= n)
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (n - 1));
+    }
+
+    private long parent(long p) {
+        return (entries.get(HEADER + p) & PARENT_MASK) ^ p;
+    }
+
+    private void setParent(long p, long parent) {
+        long entry = entries.get(HEADER + p);
+        entries.set(HEADER + p, (entry & ~PARENT_MASK) | (parent ^ p));
+    }
+
+    /**
+     * Return the number of elements.
+     * @return Number of elements
+     */
+    public long size() {
+        return n;
+    }
+
+    /**
+     * Return the number of disjoint sets.
+     * @return Number of disjoint sets
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Return root for component containing p, halving the path on the way up
+     * @param p Component for which return the root element
+     * @return Root element of p
+     */
+    public long find(long p) {
+        validate(p);
+
+        long parent = parent(p);
+        while (parent != p) {
+            long grandparent = parent(parent);
+            setParent(p, grandparent);
+
+            p = grandparent;
+            parent = parent(p);
+        }
+        return p;
+    }
+
+    /**
+     * Are objects p and q in the same set?
+     * @param p First object
+     * @param q Second object
+     * @return true if p and q are in the same set, false otherwise.
+     */
+    public boolean connected(long p, long q) {
+        return find(p) == find(q);
+    }
+
+    /**
+     * Replace sets containing p and q with their union.
+     * @param p First object
+     * @param q Second object
+     * @return Root of the merged set
+     */
+    public long union(long p, long q) {
+        long i = find(p);
+        long j = find(q);
+        if (i == j) return i;
+
+        long rankI = entries.get(HEADER + i) >>> RANK_SHIFT;
+        long rankJ = entries.get(HEADER + j) >>> RANK_SHIFT;
+
+        // make lower rank root point to higher one
+        if (rankI < rankJ) {
+            long swap = i;
+            i = j;
+            j = swap;
+        }
+        setParent(j, i);
+        if (rankI == rankJ) entries.set(HEADER + i, entries.get(HEADER + i) + RANK_UNIT);
+
+        count--;
+        entries.set(2, count);
+        return i;
+    }
+
+    /**
+     * Write every change back to the file, so that open() sees the current sets even if the
+     * process dies afterwards.
+     */
+    public void force() {
+        entries.force();
+    }
+
+    /**
+     * Save the sets to the file and close it. The union-find must not be used afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        entries.force();
+        entries.close();
+    }
+
+    /**
+     * Test client: unites random pairs into a new file, then times reopening it.
+     *
+     * @param args Proper Usage is: MappedUnionFind <FILE> <ARRAY_SIZE> <EDGES>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 3) {
+            System.out.println("Proper Usage is: MappedUnionFind <FILE> <ARRAY_SIZE> <EDGES>");
+        }
+        else {
+            final File file = new File(args[0]);
+            final long arraySize = Long.parseLong(args[1]);
+            final long edges = Long.parseLong(args[2]);
+
+            SplittableRandom random = new SplittableRandom();
+            try {
+                Stopwatch stopwatch = new Stopwatch();
+                try (MappedUnionFind unionFind = MappedUnionFind.create(file, arraySize)) {
+                    for (long e = 0; e < edges; e++) {
+                        unionFind.union(random.nextLong(arraySize), random.nextLong(arraySize));
+                    }
+                    System.out.println("build elapsed time: " + stopwatch.elapsedTime()
+                                               + ", components: " + unionFind.count());
+                }
+
+                stopwatch = new Stopwatch();
+                try (MappedUnionFind unionFind = MappedUnionFind.open(file)) {
+                    System.out.println("reopen elapsed time: " + stopwatch.elapsedTime()
+                                               + ", components: " + unionFind.count());
+                }
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The ParallelComponentsBuilder class builds the connected components of a large batch of edges
+ * with several threads. The edge arrays are cut in one contiguous partition per worker, and each
+ * worker unites its own partition into a private UnionFind, with no sharing at all. The partial
+ * results are then merged pairwise in log(partitions) rounds, the merges of a round running in
+ * parallel: merging B into A only needs one union(i, B.find(i)) per element of B that is not a
+ * root. The last survivor is an ordinary UnionFind, queried as usual.
+ *
+ * Each merge costs O(n), so the build scales with the workers as long as there are many more
+ * edges than elements per partition; it needs one n-sized union-find per partition.
+ *
+ * @author Alessio Vallero
+ */
+public class ParallelComponentsBuilder {
+    private ParallelComponentsBuilder() { }
+
+    /**
+     * Build the components of the edges (first[k], second[k]) over the elements 0..n-1.
+     *
+     * @param n          Number of elements
+     * @param first      First end of each edge
+     * @param second     Second end of each edge, same length as first
+     * @param partitions Number of partitions the edges are cut in, at least 1
+     * @param strategy   Union-find implementation of the partial and final results
+     * @param executor   Executor running the partitions and merges, e.g.
+     *                   ForkJoinPool.commonPool(). If null, everything runs on the calling thread.
+     * @return Union-find holding the components of all the edges
+     */
+    public static UnionFind build(int n, int[] first, int[] second, int partitions,
+                                  UnionFindStrategy strategy, ExecutorService executor) {
+        if (n < 0 || first == null || second == null || first.length != second.length
+                || partitions < 1 || strategy == null)
+            throw new IllegalArgumentException();
+
+        final int edges = first.length;
+        partitions = Math.max(1, Math.min(partitions, edges));
+
+        // Local components of each partition
+        final UnionFind[] partial = new UnionFind[partitions];
+        List<Callable<Void>> tasks = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            final int index = p;
+            final int from = (int) ((long) edges * p / partitions);
+            final int to = (int) ((long) edges * (p + 1) / partitions);
+            tasks.add(() -> {
+                UnionFind unionFind = strategy.create(n);
+                for (int k = from; k < to; k++) {
+                    unionFind.union(first[k], second[k]);
+                }
+                partial[index] = unionFind;
+                return null;
+            });
+        }
+        runAll(tasks, executor);
+
+        // Pairwise merge rounds: partial[k] absorbs partial[k + step]
+        for (int step = 1; step < partitions; step *= 2) {
+            tasks.clear();
+            for (int k = 0; k + step < partitions; k += 2 * step) {
+                final UnionFind into = partial[k];
+                final UnionFind from = partial[k + step];
+                tasks.add(() -> {
+                    merge(into, from);
+                    return null;
+                });
+                partial[k + step] = null;
+            }
+            runAll(tasks, executor);
+        }
+
+        return partial[0];
+    }
+
+    /**
+     * Build the components with one partition per available core.
+     *
+     * @param n        Number of elements
+     * @param first    First end of each edge
+     * @param second   Second end of each edge, same length as first
+     * @param executor Executor running the partitions and merges. If null, everything runs on
+     *                 the calling thread in a single partition.
+     * @return Union-find holding the components of all the edges
+     */
+    public static UnionFind build(int n, int[] first, int[] second, ExecutorService executor) {
+        int partitions = executor == null ? 1 : Runtime.getRuntime().availableProcessors();
+        return build(n, first, second, partitions, UnionFindStrategy.PATH_HALVING, executor);
+    }
+
+    /**
+     * Unite in into every pair of elements connected in from. Linking each non-root element to
+     * its root in from is enough, since every set of from is a tree of such links.
+     */
+    private static void merge(UnionFind into, UnionFind from) {
+        for (int i = 0; i < from.size(); i++) {
+            int root = from.find(i);
+            if (root != i) into.union(i, root);
+        }
+    }
+
+    /**
+     * Run tasks on executor and wait for all of them, or run them in order if executor is null.
+     */
+    private static void runAll(List<Callable<Void>> tasks, ExecutorService executor) {
+        try {
+            if (executor == null) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+                return;
+            }
+
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building components", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A partition failed", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("A partition failed", e);
+        }
+    }
+
+    /**
+     * Test client: builds the components of random edges sequentially and with THREADS threads,
+     * then checks that both give the same sets.
+     *
+     * @param args Proper Usage is: ParallelComponentsBuilder <ARRAY_SIZE> <EDGES> <THREADS>
+     */
+    public static void main(String[] args) {
+        // Check how many arguments were passed in
+        if (args.length < 3) {
+            System.out.println("Proper Usage is: ParallelComponentsBuilder <ARRAY_SIZE> <EDGES> <THREADS>");
+        }
+        else {
+            final int arraySize = Integer.parseInt(args[0]);
+            final int edges = Integer.parseInt(args[1]);
+            final int threads = Integer.parseInt(args[2]);
+
+            SplittableRandom random = new SplittableRandom();
+            int[] first = new int[edges];
+            int[] second = new int[edges];
+            for (int i = 0; i < edges; i++) {
+                first[i] = random.nextInt(arraySize);
+                second[i] = random.nextInt(arraySize);
+            }
+
+            Stopwatch stopwatch = new Stopwatch();
+            UnionFind sequential = build(arraySize, first, second, null);
+            System.out.println("sequential elapsed time: " + stopwatch.elapsedTime());
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                stopwatch = new Stopwatch();
+                UnionFind parallel = build(arraySize, first, second, threads,
+                                           UnionFindStrategy.PATH_HALVING, executor);
+                System.out.println("parallel elapsed time: " + stopwatch.elapsedTime());
+
+                int mismatches = 0;
+                for (int j = 0; j < arraySize; j++) {
+                    if (!parallel.connected(j, sequential.find(j))) mismatches++;
+                }
+                System.out.println("components: " + parallel.count() + ", expected " + sequential.count());
+                System.out.println("mismatches: " + mismatches);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
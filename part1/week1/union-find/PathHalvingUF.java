@@ -0,0 +1,82 @@
+/**
+ * The PathHalvingUF class models a weighted quick-union: the smaller tree is linked below the
+ * larger one, and find() makes every other node on the path point to its grandparent.
+ *
+ * @author Alessio Vallero
+ */
+public class PathHalvingUF implements UnionFind {
+    private final int[] id;    // id[i] = parent of i
+    private final int[] sz;    // sz[i] = number of objects in subtree rooted at i
+    private int count;         // number of components
+
+    /**
+     * Create a union find data structure with n isolated sets.
+     *
+     * @param n Size of the array
+     */
+    public PathHalvingUF(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+
+        count = n;
+        id = new int[n];
+        sz = new int[n];
+        for (int i = 0; i < n; i++) {
+            id[i] = i;
+            sz[i] = 1;
+        }
+    }
+
+    private void validate(int p) {
+        if (p < 0 || p >= id.length)
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (id.length - 1));
+    }
+
+    @Override
+    public int size() {
+        return id.length;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public int find(int p) {
+        validate(p);
+        while (p != id[p]) {
+            id[p] = id[id[p]];
+            p = id[p];
+        }
+        return p;
+    }
+
+    @Override
+    public int union(int p, int q) {
+        int i = find(p);
+        int j = find(q);
+        if (i == j) return i;
+
+        count--;
+
+        // make smaller root point to larger one
+        if (sz[i] < sz[j]) {
+            id[i] = j;
+            sz[j] += sz[i];
+            return j;
+        }
+        else {
+            id[j] = i;
+            sz[i] += sz[j];
+            return i;
+        }
+    }
+
+    @Override
+    public void isolate(int p) {
+        validate(p);
+        if (id[p] != p) count++;
+        id[p] = p;
+        sz[p] = 1;
+    }
+}
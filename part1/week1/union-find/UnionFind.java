@@ -0,0 +1,53 @@
+/**
+ * The UnionFind interface models a union-find (disjoint-sets) data type over the elements
+ * 0..size()-1. Implementations differ in how they link roots and compress paths, so the fastest
+ * one can be picked for each workload; see UnionFindStrategy.
+ *
+ * @author Alessio Vallero
+ */
+public interface UnionFind {
+    /**
+     * Return the number of elements.
+     * @return Number of elements
+     */
+    int size();
+
+    /**
+     * Return the number of disjoint sets.
+     * @return Number of disjoint sets
+     */
+    int count();
+
+    /**
+     * Return root for component containing p
+     * @param p Component for which return the root element
+     * @return Root element of p
+     */
+    int find(int p);
+
+    /**
+     * Are objects p and q in the same set?
+     * @param p First object
+     * @param q Second object
+     * @return true if p and q are in the same set, false otherwise.
+     */
+    default boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    /**
+     * Replace sets containing p and q with their union.
+     * @param p First object
+     * @param q Second object
+     * @return Root of the merged set, so callers can keep per-set data on it
+     */
+    int union(int p, int q);
+
+    /**
+     * Make p a singleton set again. Only meaningful when every element of p's set is isolated in
+     * the same pass, e.g. to reset the elements touched since the last reset in O(touched) instead
+     * of reallocating: count() is restored once the whole set has been isolated.
+     * @param p Element to isolate
+     */
+    void isolate(int p);
+}
@@ -0,0 +1,42 @@
+/**
+ * The UnionFindStrategy enum lists the UnionFind implementations of the project.
+ *
+ * @author Alessio Vallero
+ */
+public enum UnionFindStrategy {
+    /**
+     * Union by size, path halving. A good default.
+     */
+    PATH_HALVING {
+        @Override
+        public UnionFind create(int n) {
+            return new PathHalvingUF(n);
+        }
+    },
+    /**
+     * Union by rank with byte ranks, path splitting. 5 bytes per element instead of 8.
+     */
+    BYTE_RANK {
+        @Override
+        public UnionFind create(int n) {
+            return new ByteRankUF(n);
+        }
+    },
+    /**
+     * Union by size, full two-pass path compression. Flattest trees for query-heavy workloads.
+     */
+    PATH_COMPRESSION {
+        @Override
+        public UnionFind create(int n) {
+            return new PathCompressionUF(n);
+        }
+    };
+
+    /**
+     * Create a union-find of n isolated elements.
+     *
+     * @param n Number of elements
+     * @return New union-find
+     */
+    public abstract UnionFind create(int n);
+}